@@ -1,23 +1,45 @@
 package org.example;
 
+import org.example.dao.CheckpointDAO;
+import org.example.dao.ColdUserStore;
 import org.example.dao.MerchantDAO;
+import org.example.dao.PartitionMerchantDAO;
 import org.example.dao.TransactionDAO;
 import org.example.dao.UserDAO;
 import org.example.entity.FraudFlagger;
+import org.example.entity.ThresholdEvaluationResult;
+import org.example.entity.ThresholdSetting;
 import org.example.entity.Transaction;
+import org.example.event.AlertEvent;
+import org.example.event.StartupProfile;
 import org.example.service.*;
 
+import javax.management.JMException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 public class GuardianWatchApp {
     public static final String CSV_FILE_PATH = "src/main/resources/transactions.csv";
+    public static final String THRESHOLD_GRID_FILE_PATH = "src/main/resources/threshold_grid.csv";
+    public static final String USER_SPILL_FILE_PATH = "user_state.spill";
+    public static final int MAX_HOT_USERS = 100_000;
     public static final Logger LOGGER = Logger.getLogger(GuardianWatchApp.class.getName());
 
     public static void main(String[] args) {
         try {
-            process();
+            if (args.length > 0 && args[0].equals("--what-if")) {
+                evaluateThresholds(args.length > 1 ? args[1] : THRESHOLD_GRID_FILE_PATH);
+            } else if (args.length > 1 && args[0].equals("--partition")) {
+                processPartition(Integer.parseInt(args[1]));
+            } else if (args.length > 1 && args[0].equals("--router")) {
+                route(args[1], args.length > 2 && !args[2].equals("--follow") ? args[2] : null, Arrays.asList(args).contains("--follow"));
+            } else {
+                process(args.length > 0 && !args[0].equals("--follow") ? args[0] : null, Arrays.asList(args).contains("--follow"));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         } catch (InterruptedException e) {
@@ -28,19 +50,95 @@ public class GuardianWatchApp {
     /**
      * This method starts the application.
      * It initializes the DAOs and services, starts the task to update the median transaction amount for each user, reads transactions from the CSV file, detects fraudulent transactions, and sets merchants as fraudulent if a fraudulent transaction is detected.
+     * When a feed file is given, reading resumes from its last checkpoint, so a restart does not re-read and re-alert transactions already processed.
+     * The state built from the transactions before the checkpoint is not restored, so after a restart the rules start from empty windows, medians and profiles.
+     * Without a feed file, the bundled demo file is read from the top on every run and never checkpointed.
      *
+     * @param filePath The CSV feed file to read and checkpoint, or null to read the demo file.
+     * @param follow   Whether to keep waiting for transactions appended to the CSV file instead of stopping at its end.
      * @throws IOException If there is an error reading the CSV file.
      */
-    private static void process() throws IOException, InterruptedException {
-        UserDAO userDAO = new UserDAO();
+    private static void process(String filePath, boolean follow) throws IOException, InterruptedException {
+        StartupProfile startupProfile = new StartupProfile();
+        startupProfile.begin("user store");
+        TransactionDAO transactionDAO = new TransactionDAO();
+        UserDAO userDAO = new UserDAO(MAX_HOT_USERS, new ColdUserStore(USER_SPILL_FILE_PATH), transactionDAO);
         MerchantDAO merchantDAO = new MerchantDAO();
+
+        startupProfile.begin("checkpoint");
+        ITransactionReaderService transactionReaderService = filePath == null
+                ? new TransactionReaderService(userDAO, merchantDAO, transactionDAO, CSV_FILE_PATH, null, follow)
+                : new TransactionReaderService(userDAO, merchantDAO, transactionDAO, filePath, new CheckpointDAO(), follow);
+        detectFraud(userDAO, merchantDAO, transactionDAO, transactionReaderService, 2000, AlertLeaderboardService.OBJECT_NAME, startupProfile);
+    }
+
+    /**
+     * This method runs one partition of a partitioned deployment.
+     * It waits for the router to connect on the given local port, then detects fraud on the transactions of the users it owns.
+     *
+     * @param port The local port to listen on.
+     * @throws IOException If there is an error talking to the router.
+     */
+    private static void processPartition(int port) throws IOException, InterruptedException {
+        StartupProfile startupProfile = new StartupProfile();
+        startupProfile.begin("user store");
         TransactionDAO transactionDAO = new TransactionDAO();
+        UserDAO userDAO = new UserDAO(MAX_HOT_USERS, new ColdUserStore(USER_SPILL_FILE_PATH + "." + port), transactionDAO);
+        PartitionMerchantDAO merchantDAO = new PartitionMerchantDAO();
 
-        ITransactionReaderService transactionReaderService = new TransactionReaderService(userDAO, merchantDAO, transactionDAO);
+        PartitionWorkerService partitionWorkerService = new PartitionWorkerService(port, userDAO, merchantDAO, transactionDAO);
+        LOGGER.info("Partition waiting for router on port " + partitionWorkerService.getPort());
+        startupProfile.end(); // Waiting for the router is not startup time
+        partitionWorkerService.accept();
+        detectFraud(userDAO, merchantDAO, transactionDAO, partitionWorkerService, 0, String.format(AlertLeaderboardService.PARTITION_OBJECT_NAME_FORMAT, port), startupProfile);
+    }
+
+    /**
+     * This method runs the router of a partitioned deployment.
+     * It splits the CSV file across the partitions listening on the given local ports and prints the global merchant fraudulent counts.
+     * Like the single process mode, it resumes from its last checkpoint of a given feed file, so a restart does not re-send rows already routed,
+     * and reads the demo file from the top without checkpointing when no feed file is given.
+     *
+     * @param ports    The comma separated local ports of the partitions, in partition order.
+     * @param filePath The CSV feed file to route and checkpoint, or null to route the demo file.
+     * @param follow   Whether to keep waiting for transactions appended to the CSV file instead of stopping at its end.
+     * @throws IOException If there is an error reading the file or talking to a partition.
+     */
+    private static void route(String ports, String filePath, boolean follow) throws IOException, InterruptedException {
+        List<Integer> partitionPorts = new ArrayList<>();
+        for (String port : ports.split(",")) {
+            partitionPorts.add(Integer.parseInt(port.trim()));
+        }
+        PartitionRouterService partitionRouterService = filePath == null
+                ? new PartitionRouterService(partitionPorts, CSV_FILE_PATH, null, follow)
+                : new PartitionRouterService(partitionPorts, filePath, new CheckpointDAO(PartitionRouterService.ROUTER_CHECKPOINT_SUFFIX), follow);
+        Map<String, Integer> globalFraudulentCounts = partitionRouterService.route();
+        System.out.println("Merchant fraudulent counts: " + globalFraudulentCounts);
+    }
+
+    /**
+     * This method detects fraud on every transaction of the reader and sets merchants as fraudulent when a fraudulent transaction is detected.
+     *
+     * Each alert is recorded as an {@link AlertEvent}, and the time spent starting up is logged before the first transaction is read.
+     *
+     * @param transactionReaderService The source of the transactions, already wired to the DAOs.
+     * @param pauseMillis              The time to wait after each transaction.
+     * @param leaderboardObjectName    The JMX name of the alert leaderboards; a partition's leaderboards only cover its own transactions.
+     * @param startupProfile           The startup phases timed so far.
+     */
+    private static void detectFraud(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO, ITransactionReaderService transactionReaderService, long pauseMillis, String leaderboardObjectName, StartupProfile startupProfile) throws IOException, InterruptedException {
+        startupProfile.begin("services");
         IFraudDetectionService fraudDetectionService = new FraudDetectionService(userDAO, merchantDAO, transactionDAO);
         UserService userService = new UserService(userDAO, transactionDAO);
+        AlertLeaderboardService alertLeaderboardService = new AlertLeaderboardService();
+        try {
+            alertLeaderboardService.registerMBean(leaderboardObjectName);
+        } catch (JMException e) {
+            LOGGER.warning("Could not register the alert leaderboards over JMX: " + e.getMessage());
+        }
 
         userService.calculateMedianTransactionAmountForAllUser();
+        LOGGER.info(startupProfile.report());
 
         Transaction transaction;
         while ((transaction = transactionReaderService.getNextTransaction()) != null) {
@@ -48,17 +146,27 @@ public class GuardianWatchApp {
             LOGGER.info(String.format("Transaction: %s, %s, %s, %s\n", transaction.getUserId(), transaction.getAmount(), transaction.getTimestamp(), transaction.getMerchantName()));
 
             List<FraudFlagger> fraudFlaggerList = fraudDetectionService.detectFraud(transaction);
+            alertLeaderboardService.recordTransaction(transaction, fraudFlaggerList);
             if (!fraudFlaggerList.isEmpty()) {
+                AlertEvent alertEvent = new AlertEvent();
+                alertEvent.begin();
                 merchantDAO.setFraudulentCount(transaction.getMerchantName());
                 StringBuilder response = new StringBuilder("Fraud detected: ");
                 for (FraudFlagger flagger : fraudFlaggerList) {
                     response.append(flagger.toString()).append(" ");
                 }
                 System.out.println(response);
+                if (alertEvent.shouldCommit()) {
+                    alertEvent.userId = transaction.getUserId();
+                    alertEvent.merchantName = transaction.getMerchantName();
+                    alertEvent.amount = transaction.getAmount();
+                    alertEvent.flags = fraudFlaggerList.toString();
+                    alertEvent.commit();
+                }
             }
 
             try {
-                Thread.sleep(2000);
+                Thread.sleep(pauseMillis);
             } catch (InterruptedException e) {
                 throw new InterruptedException();
             }
@@ -66,4 +174,28 @@ public class GuardianWatchApp {
 
         userService.stopCalculatingMedianTransactionAmount();
     }
+
+    /**
+     * This method evaluates a grid of threshold settings in a single pass over the CSV file and prints the flag counts and overlaps of each setting.
+     *
+     * @param thresholdGridFilePath The path of the CSV file holding the threshold settings.
+     * @throws IOException If there is an error reading the CSV files.
+     */
+    private static void evaluateThresholds(String thresholdGridFilePath) throws IOException {
+        StartupProfile startupProfile = new StartupProfile();
+        startupProfile.begin("user store");
+        TransactionDAO transactionDAO = new TransactionDAO();
+        UserDAO userDAO = new UserDAO(MAX_HOT_USERS, new ColdUserStore(USER_SPILL_FILE_PATH), transactionDAO);
+        MerchantDAO merchantDAO = new MerchantDAO();
+
+        startupProfile.begin("threshold grid");
+        List<ThresholdSetting> thresholdSettings = ThresholdEvaluationService.readThresholdSettings(thresholdGridFilePath);
+        startupProfile.begin("reader");
+        ITransactionReaderService transactionReaderService = new TransactionReaderService(userDAO, merchantDAO, transactionDAO);
+        ThresholdEvaluationService thresholdEvaluationService = new ThresholdEvaluationService(userDAO, merchantDAO, transactionDAO, thresholdSettings);
+        LOGGER.info(startupProfile.report());
+
+        ThresholdEvaluationResult result = thresholdEvaluationService.evaluate(transactionReaderService);
+        System.out.println(result);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package org.example.dao;
+
+import org.example.entity.ReaderCheckpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * This class represents a Data Access Object (DAO) for ReaderCheckpoint.
+ * Each input file has its own checkpoint file next to it, named after the input file with a ".checkpoint" suffix,
+ * or with another suffix for readers that must not share their checkpoint, like the partition router.
+ */
+public class CheckpointDAO {
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private final String checkpointSuffix;
+
+    public CheckpointDAO() {
+        this(CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * @param checkpointSuffix The suffix added to the input file path to name its checkpoint file.
+     */
+    public CheckpointDAO(String checkpointSuffix) {
+        this.checkpointSuffix = checkpointSuffix;
+    }
+
+    /**
+     * This method loads the last checkpoint saved for an input file.
+     *
+     * @param filePath The path of the input file.
+     * @return The last checkpoint, or null if the file has never been checkpointed.
+     * @throws IOException If the checkpoint file exists but cannot be read.
+     */
+    public ReaderCheckpoint getCheckpoint(String filePath) throws IOException {
+        Path checkpointPath = Paths.get(filePath + checkpointSuffix);
+        if (!Files.exists(checkpointPath)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(checkpointPath)) {
+            properties.load(inputStream);
+        }
+        String prefixHash = properties.getProperty("prefixHash");
+        return new ReaderCheckpoint(filePath, Long.parseLong(properties.getProperty("offset")), Long.parseLong(properties.getProperty("lineNumber")),
+                properties.getProperty("fileKey"), prefixHash == null ? null : Long.valueOf(prefixHash));
+    }
+
+    /**
+     * This method saves a checkpoint atomically.
+     * It writes a temporary file, forces it to disk and renames it over the previous checkpoint,
+     * so a crash at any point leaves either the old or the new checkpoint, never a partial one.
+     *
+     * @param checkpoint The checkpoint to save.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveCheckpoint(ReaderCheckpoint checkpoint) throws IOException {
+        Path checkpointPath = Paths.get(checkpoint.getFilePath() + checkpointSuffix).toAbsolutePath();
+        Path temporaryPath = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(checkpoint.getOffset()));
+        properties.setProperty("lineNumber", Long.toString(checkpoint.getLineNumber()));
+        if (checkpoint.getFileKey() != null) {
+            properties.setProperty("fileKey", checkpoint.getFileKey());
+        }
+        if (checkpoint.getPrefixHash() != null) {
+            properties.setProperty("prefixHash", Long.toString(checkpoint.getPrefixHash()));
+        }
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream outputStream = Channels.newOutputStream(channel);
+            properties.store(outputStream, null);
+            outputStream.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryPath, checkpointPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
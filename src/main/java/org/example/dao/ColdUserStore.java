@@ -0,0 +1,241 @@
+package org.example.dao;
+
+import org.example.util.Hashing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class stores serialized users in a memory-mapped file, so users that are not active stay out of the heap.
+ * The file is made of fixed size mapped segments; records are appended and never cross a segment boundary.
+ * A record is rewritten in place when the new value fits its capacity, otherwise it is moved to a free record of a fitting capacity,
+ * or appended if there is none, and its old space is added to the free records. The file therefore only grows with the stored data,
+ * not with the number of times users are spilled.
+ * The index from user ID to record lives in two primitive arrays keyed by the 64 bit hash of the user ID,
+ * which costs 16 bytes per stored user. Records also hold their user ID, which is checked on lookup,
+ * so users with the same hash are stored side by side instead of overwriting each other.
+ * The file is only a spill area for the running process and is cleared on open.
+ */
+public class ColdUserStore implements Closeable {
+    public static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final int MAX_FREE_RECORD_WASTE_FACTOR = 2;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long appendOffset;
+    private long[] indexKeys = new long[INITIAL_INDEX_CAPACITY];
+    private long[] indexOffsets = new long[INITIAL_INDEX_CAPACITY];
+    private int size;
+    private final TreeMap<Integer, ArrayDeque<Long>> freeOffsetsByCapacity = new TreeMap<>();
+
+    /**
+     * @param filePath The path of the spill file; it is created or truncated.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ColdUserStore(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        Files.deleteIfExists(path);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * This method stores the serialized state of a user, replacing any previous state.
+     *
+     * @param userId The ID of the user.
+     * @param record The serialized user; it must be smaller than a segment.
+     * @throws IOException If the file cannot be extended.
+     */
+    public void put(String userId, byte[] record) throws IOException {
+        byte[] id = userId.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + id.length + record.length;
+        long key = key(userId);
+        int slot = findSlot(key, id);
+        boolean stored = indexKeys[slot] == key;
+        if (stored) {
+            long offset = indexOffsets[slot];
+            int capacity = segment(offset).getInt(position(offset));
+            if (capacity >= length) {
+                write(offset, capacity, id, record);
+                return;
+            }
+        }
+
+        long offset = allocate(length + length / 4);
+        write(offset, segment(offset).getInt(position(offset)), id, record);
+        if (stored) {
+            long oldOffset = indexOffsets[slot];
+            freeOffsetsByCapacity.computeIfAbsent(segment(oldOffset).getInt(position(oldOffset)), capacity -> new ArrayDeque<>()).push(oldOffset);
+        }
+        indexOffsets[slot] = offset;
+        if (!stored) {
+            indexKeys[slot] = key;
+            if (++size * 2 > indexKeys.length) {
+                resizeIndex();
+            }
+        }
+    }
+
+    /**
+     * This method reads the serialized state of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The serialized user, or null if the user was never stored.
+     */
+    public byte[] get(String userId) {
+        byte[] id = userId.getBytes(StandardCharsets.UTF_8);
+        long key = key(userId);
+        int slot = findSlot(key, id);
+        if (indexKeys[slot] != key) {
+            return null;
+        }
+        long offset = indexOffsets[slot];
+        MappedByteBuffer segment = segment(offset);
+        int position = position(offset);
+        byte[] record = new byte[segment.getInt(position + 4) - 4 - id.length];
+        ByteBuffer view = segment.duplicate();
+        view.position(position + RECORD_HEADER_SIZE + 4 + id.length);
+        view.get(record);
+        return record;
+    }
+
+    /**
+     * @return The number of bytes of the file taken by records, stored or free.
+     */
+    public long getUsedBytes() {
+        return appendOffset;
+    }
+
+    /**
+     * @return The number of users stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes a record: its capacity and length, then the length and bytes of the user ID, then the serialized user.
+     */
+    private void write(long offset, int capacity, byte[] id, byte[] record) {
+        MappedByteBuffer segment = segment(offset);
+        int position = position(offset);
+        segment.putInt(position, capacity);
+        segment.putInt(position + 4, 4 + id.length + record.length);
+        ByteBuffer view = segment.duplicate();
+        view.position(position + RECORD_HEADER_SIZE);
+        view.putInt(id.length);
+        view.put(id);
+        view.put(record);
+    }
+
+    /**
+     * Finds space for a record of the given capacity and writes the capacity of the space found in its header.
+     * A free record is reused if it is large enough without wasting more than its own size again; otherwise the file is extended.
+     */
+    private long allocate(int capacity) throws IOException {
+        Map.Entry<Integer, ArrayDeque<Long>> free = freeOffsetsByCapacity.ceilingEntry(capacity);
+        if (free != null && free.getKey() <= capacity * MAX_FREE_RECORD_WASTE_FACTOR) {
+            long offset = free.getValue().pop();
+            if (free.getValue().isEmpty()) {
+                freeOffsetsByCapacity.remove(free.getKey());
+            }
+            return offset;
+        }
+        int length = RECORD_HEADER_SIZE + capacity;
+        if (length > SEGMENT_SIZE) {
+            throw new IOException("Record of " + length + " bytes does not fit in a segment");
+        }
+        long segmentEnd = (long) segments.size() * SEGMENT_SIZE;
+        if (appendOffset + length > segmentEnd) {
+            appendOffset = segmentEnd;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segmentEnd, SEGMENT_SIZE));
+        }
+        long offset = appendOffset;
+        appendOffset += length;
+        segment(offset).putInt(position(offset), capacity);
+        return offset;
+    }
+
+    /**
+     * Finds the slot of the user with the given hash and ID, probing past the users with the same hash but another ID,
+     * or the empty slot where the user would be added.
+     */
+    private int findSlot(long key, byte[] id) {
+        int mask = indexKeys.length - 1;
+        int slot = homeSlot(key);
+        while (indexKeys[slot] != 0 && (indexKeys[slot] != key || !hasId(indexOffsets[slot], id))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean hasId(long offset, byte[] id) {
+        MappedByteBuffer segment = segment(offset);
+        int position = position(offset) + RECORD_HEADER_SIZE;
+        if (segment.getInt(position) != id.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length; i++) {
+            if (segment.get(position + 4 + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MappedByteBuffer segment(long offset) {
+        return segments.get((int) (offset / SEGMENT_SIZE));
+    }
+
+    private static int position(long offset) {
+        return (int) (offset % SEGMENT_SIZE);
+    }
+
+    private void resizeIndex() {
+        long[] oldKeys = indexKeys;
+        long[] oldOffsets = indexOffsets;
+        indexKeys = new long[oldKeys.length * 2];
+        indexOffsets = new long[oldOffsets.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = homeSlot(oldKeys[i]);
+                while (indexKeys[slot] != 0) {
+                    slot = (slot + 1) & (indexKeys.length - 1);
+                }
+                indexKeys[slot] = oldKeys[i];
+                indexOffsets[slot] = oldOffsets[i];
+            }
+        }
+    }
+
+    private int homeSlot(long key) {
+        return (int) (key ^ (key >>> 32)) & (indexKeys.length - 1);
+    }
+
+    /**
+     * Hashes a user ID for the index, never to 0, which marks an empty slot. Tests override it to force collisions.
+     */
+    long key(String userId) {
+        long key = Hashing.hash(userId);
+        return key == 0 ? 1 : key;
+    }
+}
@@ -72,4 +72,22 @@ public class MerchantDAO {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * This method sets a merchant's fraudulent count to a given value, adding the merchant if it does not exist yet.
+     *
+     * @param merchantName    The name of the merchant to update.
+     * @param fraudulentCount The new fraudulent count.
+     */
+    public void setFraudulentCount(String merchantName, int fraudulentCount) {
+        for (Merchant merchant : merchantList) {
+            if (merchant.getName().equals(merchantName)) {
+                merchant.setFraudulentCount(fraudulentCount);
+                return;
+            }
+        }
+        Merchant merchant = new Merchant(merchantName);
+        merchant.setFraudulentCount(fraudulentCount);
+        merchantList.add(merchant);
+    }
+}
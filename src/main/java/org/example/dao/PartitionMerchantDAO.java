@@ -0,0 +1,49 @@
+package org.example.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is the MerchantDAO of a partition process.
+ * Merchant fraudulent counts are global, but each partition only sees the alerts of its own users, so the alerts
+ * raised locally are remembered until they are reported to the router, and the global counts sent back by the router
+ * are merged in with the alerts not reported yet.
+ */
+public class PartitionMerchantDAO extends MerchantDAO {
+    private final Map<String, Integer> unreportedFraudulentCounts = new HashMap<>();
+
+    /**
+     * This method increments a merchant's fraudulent count and remembers the increment for the next report.
+     *
+     * @param merchantName The name of the merchant to update.
+     */
+    @Override
+    public synchronized void setFraudulentCount(String merchantName) {
+        super.setFraudulentCount(merchantName);
+        unreportedFraudulentCounts.merge(merchantName, 1, Integer::sum);
+    }
+
+    /**
+     * This method returns the increments made since the last call and forgets them.
+     *
+     * @return The number of local alerts per merchant since the last report.
+     */
+    public synchronized Map<String, Integer> drainUnreportedFraudulentCounts() {
+        Map<String, Integer> unreported = new HashMap<>(unreportedFraudulentCounts);
+        unreportedFraudulentCounts.clear();
+        return unreported;
+    }
+
+    /**
+     * This method merges the global count of a merchant sent by the router.
+     * Alerts reported but not yet included in the global count would be lost by a plain overwrite,
+     * so the count never goes below its current local value.
+     *
+     * @param merchantName          The name of the merchant.
+     * @param globalFraudulentCount The count aggregated over all partitions.
+     */
+    public synchronized void setGlobalFraudulentCount(String merchantName, int globalFraudulentCount) {
+        int count = globalFraudulentCount + unreportedFraudulentCounts.getOrDefault(merchantName, 0);
+        super.setFraudulentCount(merchantName, Math.max(count, super.getFraudulentCount(merchantName)));
+    }
+}
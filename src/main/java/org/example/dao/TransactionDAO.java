@@ -1,42 +1,111 @@
 package org.example.dao;
 
-import lombok.Getter;
-import lombok.Setter;
 import org.example.entity.Transaction;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-@Getter
-@Setter
+/**
+ * This class represents a Data Access Object (DAO) for Transaction.
+ * Transactions are kept per user, and only for the last HISTORY_MONTHS months before the latest transaction,
+ * which covers the median window and the velocity windows of the rules.
+ * The history of a user spilled by {@link UserDAO} is spilled with it, so heap usage stays bounded by the number of users in memory.
+ * The methods are synchronized because the median refresh timer reads the history while transactions are added.
+ */
 public class TransactionDAO {
-    private List<Transaction> transactionList = new ArrayList<>();
+    public static final int HISTORY_MONTHS = 6;
+    private final Map<String, List<Transaction>> transactionsByUser = new HashMap<>();
+    private LocalDateTime latestTimestamp;
 
     /**
-     * This method adds a new transaction to the transaction list.
+     * This method adds a new transaction to the history of its user.
+     * It also keeps track of the latest transaction timestamp seen so far, and drops the user's transactions older than HISTORY_MONTHS months before it.
      *
      * @param transaction The Transaction object to be added.
      */
-    public void addTransaction(Transaction transaction) {
-        transactionList.add(transaction);
+    public synchronized void addTransaction(Transaction transaction) {
+        if (latestTimestamp == null || transaction.getTimestamp().isAfter(latestTimestamp)) {
+            latestTimestamp = transaction.getTimestamp();
+        }
+        List<Transaction> transactions = transactionsByUser.computeIfAbsent(transaction.getUserId(), userId -> new ArrayList<>());
+        LocalDateTime oldest = latestTimestamp.minusMonths(HISTORY_MONTHS);
+        if (!transactions.isEmpty() && transactions.get(0).getTimestamp().isBefore(oldest)) {
+            transactions.removeIf(previousTransaction -> previousTransaction.getTimestamp().isBefore(oldest));
+        }
+        transactions.add(transaction);
     }
 
     /**
      * This method retrieves a list of previous transactions for a user within a certain time window.
-     * It does this by iterating through the transaction list and adding transactions that match the user ID and are within the time window to a new list.
+     * It does this by iterating through the user's history and adding transactions that are within the time window to a new list.
      *
-     * @param timeWindow The time window within which to retrieve transactions.
+     * @param timeWindow The start of the time window; transactions made at or after this time are retrieved.
      * @param userId     The ID of the user for whom to retrieve transactions.
      * @return A list of Transaction objects that match the given user ID and are within the time window.
      */
-    public List<Transaction> getPreviousTransactionsForAUser(LocalDateTime timeWindow, String userId) {
+    public synchronized List<Transaction> getPreviousTransactionsForAUser(LocalDateTime timeWindow, String userId) {
         List<Transaction> previousTransactions = new ArrayList<>();
-        for (Transaction transaction : transactionList) {
-            if (transaction.getUserId().equals(userId) && transaction.getTimestamp().minusSeconds(timeWindow.getSecond()).isBefore(transaction.getTimestamp())) {
+        for (Transaction transaction : transactionsByUser.getOrDefault(userId, new ArrayList<>())) {
+            if (!transaction.getTimestamp().isBefore(timeWindow)) {
                 previousTransactions.add(transaction);
             }
         }
         return previousTransactions;
     }
+
+    /**
+     * @return The latest transaction timestamp seen so far, or null if there are no transactions yet.
+     */
+    public synchronized LocalDateTime getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    /**
+     * This method writes the history of a user and removes it from memory, when the user is spilled.
+     *
+     * @param userId The ID of the user.
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public synchronized void spillTransactionsForAUser(String userId, DataOutput output) throws IOException {
+        List<Transaction> transactions = transactionsByUser.remove(userId);
+        if (transactions == null) {
+            transactions = new ArrayList<>();
+        }
+        output.writeInt(transactions.size());
+        for (Transaction transaction : transactions) {
+            output.writeDouble(transaction.getAmount());
+            output.writeLong(transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+            output.writeInt(transaction.getTimestamp().getNano());
+            output.writeUTF(transaction.getMerchantName());
+        }
+    }
+
+    /**
+     * This method reads back the history of a user written by {@link #spillTransactionsForAUser(String, DataOutput)}.
+     *
+     * @param userId The ID of the user.
+     * @param input  The input to read from.
+     * @throws IOException If there is an error reading.
+     */
+    public synchronized void restoreTransactionsForAUser(String userId, DataInput input) throws IOException {
+        int size = input.readInt();
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double amount = input.readDouble();
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC);
+            transactions.add(new Transaction(userId, amount, timestamp, input.readUTF()));
+        }
+        List<Transaction> added = transactionsByUser.put(userId, transactions);
+        if (added != null) {
+            transactions.addAll(added); // transactions added while the user was spilled
+        }
+    }
 }
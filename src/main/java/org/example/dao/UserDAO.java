@@ -1,27 +1,89 @@
 package org.example.dao;
 
-import lombok.Getter;
-import lombok.Setter;
 import org.example.entity.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-@Getter
-@Setter
+/**
+ * This class represents a Data Access Object (DAO) for User.
+ * Users are kept in two tiers: the most recently used users stay in memory, up to maxHotUsers,
+ * and the least recently used ones are spilled to a {@link ColdUserStore}, together with their transaction history, and read back on their next access.
+ * Users are only spilled and read back by {@link #getUser(String)} and {@link #addUser(User)}, which must be called from the thread ingesting transactions,
+ * since that thread mutates the users without holding a lock.
+ * The access-ordered map of the users in memory is not exposed, since reading it would reorder or evict users without spilling them.
+ */
 public class UserDAO {
-    private Map<String, User> userMap = new HashMap<>();
+    private final int maxHotUsers;
+    private final ColdUserStore coldUserStore;
+    private final TransactionDAO transactionDAO;
+    private final Map<String, User> userMap;
+
+    /**
+     * Creates a DAO that keeps every user in memory.
+     */
+    public UserDAO() {
+        this(Integer.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Creates a DAO that keeps at most maxHotUsers users in memory and spills the others, with their transaction history, to the given store.
+     *
+     * @param maxHotUsers    The maximum number of users kept in memory.
+     * @param coldUserStore  The store for the users evicted from memory.
+     * @param transactionDAO The DAO holding the transaction history of the users.
+     */
+    public UserDAO(int maxHotUsers, ColdUserStore coldUserStore, TransactionDAO transactionDAO) {
+        this.maxHotUsers = maxHotUsers;
+        this.coldUserStore = coldUserStore;
+        this.transactionDAO = transactionDAO;
+        this.userMap = new LinkedHashMap<String, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+                if (size() <= UserDAO.this.maxHotUsers || UserDAO.this.coldUserStore == null) {
+                    return false;
+                }
+                spill(eldest.getValue());
+                return true;
+            }
+        };
+    }
 
     /**
      * This method retrieves a user from the user map based on the user ID.
+     * If the user was spilled to the cold store, it is read back with its transaction history and becomes hot again.
      *
      * @param userId The ID of the user to retrieve.
      * @return The User object corresponding to the given user ID, or null if no such user exists.
      */
-    public User getUser(String userId) {
-        return userMap.get(userId);
+    public synchronized User getUser(String userId) {
+        User user = userMap.get(userId);
+        if (user != null || coldUserStore == null) {
+            return user;
+        }
+        byte[] record = coldUserStore.get(userId);
+        if (record == null) {
+            return null;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            user = User.readFrom(input);
+            if (transactionDAO != null) {
+                transactionDAO.restoreTransactionsForAUser(userId, input);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        userMap.put(userId, user);
+        return user;
     }
 
     /**
@@ -30,26 +92,45 @@ public class UserDAO {
      *
      * @param user The User object to be added.
      */
-    public void addUser(User user) {
+    public synchronized void addUser(User user) {
         userMap.put(user.getUserId(), user);
     }
 
     /**
-     * This method retrieves a list of all users in the system.
+     * This method retrieves a list of the users currently held in memory.
+     * Spilled users are not included; they are read back when they next transact.
      *
-     * @return A list of all User objects in the system.
+     * @return A list of the User objects in memory.
      */
-    public List<User> getUserList() {
+    public synchronized List<User> getUserList() {
         return new ArrayList<>(userMap.values());
     }
 
     /**
      * This method sets the median transaction amount for a user.
+     * Like {@link #getUser(String)}, it may read the user back from the cold store, so it must be called from the thread ingesting transactions.
      *
      * @param userId                  The ID of the user to update.
      * @param medianTransactionAmount The new median transaction amount for the user.
      */
-    public void setMedianTransactionAmount(String userId, Double medianTransactionAmount) {
-        userMap.get(userId).setMedianTransactionAmount(medianTransactionAmount);
+    public synchronized void setMedianTransactionAmount(String userId, Double medianTransactionAmount) {
+        User user = getUser(userId);
+        if (user != null) {
+            user.setMedianTransactionAmount(medianTransactionAmount);
+        }
+    }
+
+    private void spill(User user) {
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(record);
+            user.writeTo(output);
+            if (transactionDAO != null) {
+                transactionDAO.spillTransactionsForAUser(user.getUserId(), output);
+            }
+            coldUserStore.put(user.getUserId(), record.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -5,5 +5,7 @@ public enum FraudFlagger {
     ODD_TIME_TRANSACTION,
     TOO_MANY_TRANSACTION_ACROSS_MERCHANT,
     TOO_MANY_TRANSACTION_WITH_SAME_MERCHANT,
-    FRAUDULENT_MERCHANT
+    FRAUDULENT_MERCHANT,
+    TOO_MANY_DISTINCT_MERCHANT,
+    UNUSUAL_SPENDING_PATTERN
 }
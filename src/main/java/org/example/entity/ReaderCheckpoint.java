@@ -0,0 +1,35 @@
+package org.example.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * This class represents how far an input file has been read.
+ * The offset is the byte position of the next line to read, and the line number is the number of lines read before it.
+ * The file key and the prefix hash identify the file that was read, so a checkpoint is not applied to another file
+ * later written at the same path. Both are null in checkpoints saved before they were added.
+ */
+@Getter
+@Setter
+public class ReaderCheckpoint {
+    private String filePath;
+    private long offset;
+    private long lineNumber;
+    private String fileKey;
+    private Long prefixHash;
+
+    /**
+     * @param filePath   The path of the input file.
+     * @param offset     The byte position of the next line to read.
+     * @param lineNumber The number of lines read before the offset.
+     * @param fileKey    The file system key of the file, such as its inode, or null if the file system has none.
+     * @param prefixHash The hash of the first bytes of the file, see {@link org.example.service.FeedReaderService}.
+     */
+    public ReaderCheckpoint(String filePath, long offset, long lineNumber, String fileKey, Long prefixHash) {
+        this.filePath = filePath;
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.fileKey = fileKey;
+        this.prefixHash = prefixHash;
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.entity;
+
+import org.example.util.Hashing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * This class represents the spending habits of a user, learned incrementally from their transactions.
+ * It keeps a histogram of amounts (two buckets per doubling), of the hour of the day and of the day of the week,
+ * and the counts of the user's merchants, all in fixed size primitive arrays,
+ * so updating and scoring a transaction take constant time and memory.
+ * A feature value is unusual when it (or its neighbourhood) accounts for less than 1 in UNUSUAL_FREQUENCY_DIVISOR of the user's transactions.
+ */
+public class SpendingProfile {
+    public static final int AMOUNT_BUCKETS = 32;
+    public static final int MERCHANT_SLOTS = 16;
+    public static final int UNUSUAL_FREQUENCY_DIVISOR = 20;
+    public static final int AMOUNT_NEIGHBOURHOOD = 2;
+
+    private final int[] amountCounts = new int[AMOUNT_BUCKETS];
+    private final int[] hourCounts = new int[24];
+    private final int[] dayCounts = new int[7];
+    private final long[] merchantHashes = new long[MERCHANT_SLOTS];
+    private final int[] merchantCounts = new int[MERCHANT_SLOTS];
+    private int transactionCount;
+
+    /**
+     * This method adds a transaction to the profile.
+     * When every merchant slot is taken, the least frequent merchant is replaced and the newcomer inherits its count
+     * (the space-saving scheme), so frequent merchants are never lost.
+     *
+     * @param transaction The transaction to learn from.
+     */
+    public void add(Transaction transaction) {
+        LocalDateTime timestamp = transaction.getTimestamp();
+        ++amountCounts[amountBucket(transaction.getAmount())];
+        ++hourCounts[timestamp.getHour()];
+        ++dayCounts[timestamp.getDayOfWeek().getValue() - 1];
+        ++transactionCount;
+
+        long hash = Hashing.hash(transaction.getMerchantName());
+        int minimum = 0;
+        for (int i = 0; i < MERCHANT_SLOTS; i++) {
+            if (merchantCounts[i] > 0 && merchantHashes[i] == hash) {
+                ++merchantCounts[i];
+                return;
+            }
+            if (merchantCounts[i] < merchantCounts[minimum]) {
+                minimum = i;
+            }
+        }
+        merchantHashes[minimum] = hash;
+        ++merchantCounts[minimum];
+    }
+
+    /**
+     * @return The number of transactions learned.
+     */
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * This method checks if an amount is unusual for the user, looking at its bucket and the AMOUNT_NEIGHBOURHOOD buckets on each side.
+     *
+     * @param amount The amount of the transaction.
+     * @return true if amounts this size are rare for the user.
+     */
+    public boolean isUnusualAmount(double amount) {
+        int bucket = amountBucket(amount);
+        int count = 0;
+        for (int i = Math.max(0, bucket - AMOUNT_NEIGHBOURHOOD); i <= Math.min(AMOUNT_BUCKETS - 1, bucket + AMOUNT_NEIGHBOURHOOD); i++) {
+            count += amountCounts[i];
+        }
+        return isRare(count);
+    }
+
+    /**
+     * This method checks if an hour of the day is unusual for the user, looking at the hour and the hours just before and after it.
+     *
+     * @param timestamp The time of the transaction.
+     * @return true if the user rarely transacts around this hour.
+     */
+    public boolean isUnusualHour(LocalDateTime timestamp) {
+        int hour = timestamp.getHour();
+        return isRare(hourCounts[(hour + 23) % 24] + hourCounts[hour] + hourCounts[(hour + 1) % 24]);
+    }
+
+    /**
+     * @param timestamp The time of the transaction.
+     * @return true if the user rarely transacts on this day of the week.
+     */
+    public boolean isUnusualDay(LocalDateTime timestamp) {
+        return isRare(dayCounts[timestamp.getDayOfWeek().getValue() - 1]);
+    }
+
+    /**
+     * @param merchantName The merchant of the transaction.
+     * @return true if the user rarely transacts with this merchant.
+     */
+    public boolean isUnusualMerchant(String merchantName) {
+        long hash = Hashing.hash(merchantName);
+        for (int i = 0; i < MERCHANT_SLOTS; i++) {
+            if (merchantCounts[i] > 0 && merchantHashes[i] == hash) {
+                return isRare(merchantCounts[i]);
+            }
+        }
+        return true;
+    }
+
+    private boolean isRare(int count) {
+        return (long) count * UNUSUAL_FREQUENCY_DIVISOR < transactionCount;
+    }
+
+    /**
+     * This method maps an amount to its histogram bucket; there are two buckets per doubling of the amount.
+     *
+     * @param amount The amount.
+     * @return The bucket, between 0 and AMOUNT_BUCKETS - 1.
+     */
+    public static int amountBucket(double amount) {
+        int bucket = (int) Math.floor(2 * Math.log(Math.max(amount, 0) + 1) / Math.log(2));
+        return Math.min(bucket, AMOUNT_BUCKETS - 1);
+    }
+
+    /**
+     * This method writes the profile.
+     *
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(transactionCount);
+        writeCounts(output, amountCounts);
+        writeCounts(output, hourCounts);
+        writeCounts(output, dayCounts);
+        for (int i = 0; i < MERCHANT_SLOTS; i++) {
+            output.writeLong(merchantHashes[i]);
+            output.writeInt(merchantCounts[i]);
+        }
+    }
+
+    /**
+     * This method reads a profile written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The profile.
+     * @throws IOException If there is an error reading.
+     */
+    public static SpendingProfile readFrom(DataInput input) throws IOException {
+        SpendingProfile profile = new SpendingProfile();
+        profile.transactionCount = input.readInt();
+        readCounts(input, profile.amountCounts);
+        readCounts(input, profile.hourCounts);
+        readCounts(input, profile.dayCounts);
+        for (int i = 0; i < MERCHANT_SLOTS; i++) {
+            profile.merchantHashes[i] = input.readLong();
+            profile.merchantCounts[i] = input.readInt();
+        }
+        return profile;
+    }
+
+    private static void writeCounts(DataOutput output, int[] counts) throws IOException {
+        for (int count : counts) {
+            output.writeInt(count);
+        }
+    }
+
+    private static void readCounts(DataInput input, int[] counts) throws IOException {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = input.readInt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.entity;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds the outcome of evaluating several threshold settings over the same transactions.
+ * For every setting it keeps the number of flagged transactions and the count per rule,
+ * and for every pair of settings the number of transactions flagged by both.
+ */
+@Getter
+public class ThresholdEvaluationResult {
+    private final List<ThresholdSetting> thresholdSettings;
+    private final int[] flaggedTransactionCount;
+    private final List<Map<FraudFlagger, Integer>> flagCount;
+    private final int[][] overlapCount;
+    private int transactionCount;
+
+    public ThresholdEvaluationResult(List<ThresholdSetting> thresholdSettings) {
+        int size = thresholdSettings.size();
+        this.thresholdSettings = thresholdSettings;
+        this.flaggedTransactionCount = new int[size];
+        this.flagCount = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flagCount.add(new EnumMap<>(FraudFlagger.class));
+        }
+        this.overlapCount = new int[size][size];
+    }
+
+    /**
+     * This method records the rules flagged by every setting for one transaction.
+     *
+     * @param fraudFlaggers The flagged rules, indexed like the threshold settings.
+     */
+    public void addTransaction(List<List<FraudFlagger>> fraudFlaggers) {
+        ++transactionCount;
+        for (int i = 0; i < fraudFlaggers.size(); i++) {
+            if (fraudFlaggers.get(i).isEmpty()) {
+                continue;
+            }
+            ++flaggedTransactionCount[i];
+            for (FraudFlagger flagger : fraudFlaggers.get(i)) {
+                flagCount.get(i).merge(flagger, 1, Integer::sum);
+            }
+            for (int j = i; j < fraudFlaggers.size(); j++) {
+                if (!fraudFlaggers.get(j).isEmpty()) {
+                    ++overlapCount[i][j];
+                    if (i != j) {
+                        ++overlapCount[j][i];
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("Evaluated %d threshold settings over %d transactions%n", thresholdSettings.size(), transactionCount));
+        for (int i = 0; i < thresholdSettings.size(); i++) {
+            report.append(String.format("#%d %s flagged: %d %s%n", i, thresholdSettings.get(i), flaggedTransactionCount[i], flagCount.get(i)));
+        }
+        report.append("Overlap (transactions flagged by both settings):").append(System.lineSeparator());
+        for (int i = 0; i < thresholdSettings.size(); i++) {
+            report.append('#').append(i);
+            for (int j = 0; j < thresholdSettings.size(); j++) {
+                report.append(' ').append(overlapCount[i][j]);
+            }
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
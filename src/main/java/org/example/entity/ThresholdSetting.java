@@ -0,0 +1,35 @@
+package org.example.entity;
+
+import lombok.Getter;
+
+/**
+ * This class represents one set of thresholds used by the fraud detection rules.
+ * It allows several candidate settings to be compared against each other without recompiling.
+ * Settings are immutable, so a setting shared by several services, like the default one, cannot be changed under them.
+ */
+@Getter
+public class ThresholdSetting {
+    private final int highAmountThreshold;
+    private final int maxTransactionCountPerMinute;
+    private final int maxTransactionCountPerHour;
+    private final int maxTransactionCountPerMerchantPerDay;
+    private final int fraudulentMerchantThreshold;
+    private final int maxDistinctMerchantCountPerHour;
+    private final int maxDistinctMerchantCountPerDay;
+
+    public ThresholdSetting(int highAmountThreshold, int maxTransactionCountPerMinute, int maxTransactionCountPerHour, int maxTransactionCountPerMerchantPerDay, int fraudulentMerchantThreshold, int maxDistinctMerchantCountPerHour, int maxDistinctMerchantCountPerDay) {
+        this.highAmountThreshold = highAmountThreshold;
+        this.maxTransactionCountPerMinute = maxTransactionCountPerMinute;
+        this.maxTransactionCountPerHour = maxTransactionCountPerHour;
+        this.maxTransactionCountPerMerchantPerDay = maxTransactionCountPerMerchantPerDay;
+        this.fraudulentMerchantThreshold = fraudulentMerchantThreshold;
+        this.maxDistinctMerchantCountPerHour = maxDistinctMerchantCountPerHour;
+        this.maxDistinctMerchantCountPerDay = maxDistinctMerchantCountPerDay;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[highAmount=%d, perMinute=%d, perHour=%d, perMerchantPerDay=%d, fraudulentMerchant=%d, distinctMerchantsPerHour=%d, distinctMerchantsPerDay=%d]",
+                highAmountThreshold, maxTransactionCountPerMinute, maxTransactionCountPerHour, maxTransactionCountPerMerchantPerDay, fraudulentMerchantThreshold, maxDistinctMerchantCountPerHour, maxDistinctMerchantCountPerDay);
+    }
+}
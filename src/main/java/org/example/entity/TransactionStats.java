@@ -0,0 +1,34 @@
+package org.example.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * This class holds the window counts, user median and spending profile scores computed for a single transaction.
+ * These values do not depend on any threshold, so they are computed once and shared by every rule evaluation.
+ * The profile scores are set separately, and stay false while the user's profile has too few transactions to be trusted.
+ */
+@Getter
+@Setter
+public class TransactionStats {
+    private int transactionCountInLastMinute;
+    private int transactionCountInLastHour;
+    private int sameMerchantTransactionCountInLastDay;
+    private long distinctMerchantCountInLastHour;
+    private long distinctMerchantCountInLastDay;
+    private Double medianTransactionAmount;
+    private int profileTransactionCount;
+    private boolean unusualAmount;
+    private boolean unusualHour;
+    private boolean unusualDay;
+    private boolean unusualMerchant;
+
+    public TransactionStats(int transactionCountInLastMinute, int transactionCountInLastHour, int sameMerchantTransactionCountInLastDay, long distinctMerchantCountInLastHour, long distinctMerchantCountInLastDay, Double medianTransactionAmount) {
+        this.transactionCountInLastMinute = transactionCountInLastMinute;
+        this.transactionCountInLastHour = transactionCountInLastHour;
+        this.sameMerchantTransactionCountInLastDay = sameMerchantTransactionCountInLastDay;
+        this.distinctMerchantCountInLastHour = distinctMerchantCountInLastHour;
+        this.distinctMerchantCountInLastDay = distinctMerchantCountInLastDay;
+        this.medianTransactionAmount = medianTransactionAmount;
+    }
+}
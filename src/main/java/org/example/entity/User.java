@@ -2,7 +2,14 @@ package org.example.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.example.util.Hashing;
+import org.example.util.SlidingDistinctCounter;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TimerTask;
@@ -16,9 +23,75 @@ public class User {
     private String firstName;
     private String lastName;
     private Double medianTransactionAmount;
+    private SlidingDistinctCounter merchantsInLastHour;
+    private SlidingDistinctCounter merchantsInLastDay;
+    private SpendingProfile spendingProfile;
 
     public User(String userId) {
         this.userId = userId;
         this.medianTransactionAmount = 0.0;
+        this.merchantsInLastHour = new SlidingDistinctCounter(10 * 60, 6);
+        this.merchantsInLastDay = new SlidingDistinctCounter(60 * 60, 24);
+        this.spendingProfile = new SpendingProfile();
     }
-}
\ No newline at end of file
+
+    /**
+     * This method records that the user made a transaction with a merchant at the given time.
+     *
+     * @param merchantName The name of the merchant.
+     * @param timestamp    The time of the transaction.
+     */
+    public void addMerchantVisit(String merchantName, LocalDateTime timestamp) {
+        long hash = Hashing.hash(merchantName);
+        long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        merchantsInLastHour.add(hash, epochSecond);
+        merchantsInLastDay.add(hash, epochSecond);
+    }
+
+    /**
+     * This method writes the user's state, including the merchant windows and the spending profile, so it can be spilled out of the heap.
+     *
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(userId);
+        writeNullableString(output, emailId);
+        writeNullableString(output, firstName);
+        writeNullableString(output, lastName);
+        output.writeDouble(medianTransactionAmount);
+        merchantsInLastHour.writeTo(output);
+        merchantsInLastDay.writeTo(output);
+        spendingProfile.writeTo(output);
+    }
+
+    /**
+     * This method reads a user written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The user.
+     * @throws IOException If there is an error reading.
+     */
+    public static User readFrom(DataInput input) throws IOException {
+        User user = new User(input.readUTF());
+        user.emailId = readNullableString(input);
+        user.firstName = readNullableString(input);
+        user.lastName = readNullableString(input);
+        user.medianTransactionAmount = input.readDouble();
+        user.merchantsInLastHour = SlidingDistinctCounter.readFrom(input);
+        user.merchantsInLastDay = SlidingDistinctCounter.readFrom(input);
+        user.spendingProfile = SpendingProfile.readFrom(input);
+        return user;
+    }
+
+    private static void writeNullableString(DataOutput output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This JFR event is an alert raised for a fraudulent transaction; its duration covers emitting the alert.
+ */
+@Name("org.example.Alert")
+@Label("Alert")
+@Category("GuardianWatch")
+@Description("An alert raised for a fraudulent transaction")
+public class AlertEvent extends Event {
+    @Label("User ID")
+    public String userId;
+
+    @Label("Merchant Name")
+    public String merchantName;
+
+    @Label("Amount")
+    public double amount;
+
+    @Label("Flags")
+    public String flags;
+}
@@ -0,0 +1,44 @@
+package org.example.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * This JFR event describes one batch of lines read from a transaction file, from one checkpoint to the next.
+ * It is committed at the checkpoint with no duration, since the time between checkpoints also includes the caller's detection work;
+ * the time spent reading and ingesting the lines is recorded in separate fields instead.
+ */
+@Name("org.example.IngestionBatch")
+@Label("Ingestion Batch")
+@Category("GuardianWatch")
+@Description("A batch of transaction lines read between two checkpoints")
+public class IngestionBatchEvent extends Event {
+    @Label("File Path")
+    public String filePath;
+
+    @Label("First Line")
+    public long firstLine;
+
+    @Label("Last Line")
+    public long lastLine;
+
+    @Label("Transaction Count")
+    public int transactionCount;
+
+    @Label("Duplicate Count")
+    public int duplicateCount;
+
+    @Label("Read Time")
+    @Description("The time spent reading the lines of the batch from the file")
+    @Timespan(Timespan.NANOSECONDS)
+    public long readTime;
+
+    @Label("Ingest Time")
+    @Description("The time spent parsing the lines of the batch and adding their transactions to the DAOs")
+    @Timespan(Timespan.NANOSECONDS)
+    public long ingestTime;
+}
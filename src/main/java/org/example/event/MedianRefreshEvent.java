@@ -0,0 +1,19 @@
+package org.example.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This JFR event covers one run of the timer task refreshing the median transaction amount of every user in memory.
+ */
+@Name("org.example.MedianRefresh")
+@Label("Median Refresh")
+@Category("GuardianWatch")
+@Description("A refresh of the median transaction amount of the users in memory")
+public class MedianRefreshEvent extends Event {
+    @Label("User Count")
+    public int userCount;
+}
@@ -0,0 +1,19 @@
+package org.example.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This JFR event covers one phase of the application startup, such as opening the user store or resuming from a checkpoint.
+ */
+@Name("org.example.StartupPhase")
+@Label("Startup Phase")
+@Category("GuardianWatch")
+@Description("A phase of loading state at startup")
+public class StartupPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+}
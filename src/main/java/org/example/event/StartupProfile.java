@@ -0,0 +1,59 @@
+package org.example.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class times the phases of the application startup.
+ * Each phase is recorded as a {@link StartupPhaseEvent} and summed up in a report logged once startup is done.
+ */
+public class StartupProfile {
+    private final long startNanos = System.nanoTime();
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> phaseNanos = new ArrayList<>();
+    private StartupPhaseEvent currentEvent;
+    private long currentStartNanos;
+
+    /**
+     * This method starts a phase, ending the current one if any.
+     *
+     * @param phase The name of the phase.
+     */
+    public void begin(String phase) {
+        end();
+        currentEvent = new StartupPhaseEvent();
+        currentEvent.phase = phase;
+        currentEvent.begin();
+        currentStartNanos = System.nanoTime();
+    }
+
+    /**
+     * This method ends the current phase, if any.
+     */
+    public void end() {
+        if (currentEvent == null) {
+            return;
+        }
+        phaseNanos.add(System.nanoTime() - currentStartNanos);
+        phases.add(currentEvent.phase);
+        currentEvent.commit();
+        currentEvent = null;
+    }
+
+    /**
+     * This method ends the current phase and describes the time spent in each phase.
+     *
+     * @return The startup report.
+     */
+    public String report() {
+        end();
+        StringBuilder report = new StringBuilder("Startup took ")
+                .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).append(" ms:");
+        for (int i = 0; i < phases.size(); i++) {
+            report.append(i == 0 ? " " : ", ").append(phases.get(i)).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(i))).append(" ms");
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * This JFR event covers collecting the stats of one transaction: scanning the user's transactions of the last day
+ * and looking the user up, which reads the user back from the cold store if it was spilled.
+ * There is one per transaction, so by default only the collections slower than the threshold are recorded.
+ */
+@Name("org.example.StatsCollection")
+@Label("Stats Collection")
+@Category("GuardianWatch")
+@Description("The collection of the window counts and profile scores of one transaction")
+@Threshold("1 ms")
+public class StatsCollectionEvent extends Event {
+    @Label("User ID")
+    public String userId;
+
+    @Label("Window Transaction Count")
+    @Description("The number of transactions of the user in the last day")
+    public int windowTransactionCount;
+}
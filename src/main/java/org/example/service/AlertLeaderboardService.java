@@ -0,0 +1,85 @@
+package org.example.service;
+
+import org.example.entity.FraudFlagger;
+import org.example.entity.Transaction;
+import org.example.util.SlidingLeaderboard;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * This service class maintains leaderboards of the users and merchants generating the most alerts over the last hour,
+ * by alert count and by alert rate. They are updated as each transaction is processed, so investigators can query
+ * them at any time over JMX (e.g. with jconsole) without scanning all users and merchants.
+ * In a partitioned deployment, each partition only records the transactions of the users it owns, so its user rankings are exact
+ * but its merchant rankings only cover the partition's share of each merchant's transactions. Partitions therefore register under
+ * PARTITION_OBJECT_NAME_FORMAT, and their merchant rankings can disagree with each other and with a single process run.
+ */
+public class AlertLeaderboardService implements AlertLeaderboardServiceMBean {
+    public static final String OBJECT_NAME = "org.example:type=AlertLeaderboard";
+    public static final String PARTITION_OBJECT_NAME_FORMAT = OBJECT_NAME + ",partition=%d";
+    public static final long WINDOW_BUCKET_SECONDS = 60;
+    public static final int WINDOW_BUCKET_COUNT = 60;
+    public static final int MIN_TRANSACTIONS_FOR_RATE = 5;
+    public static final int DEFAULT_TOP_N = 10;
+
+    private final SlidingLeaderboard userLeaderboard = new SlidingLeaderboard(WINDOW_BUCKET_SECONDS, WINDOW_BUCKET_COUNT, MIN_TRANSACTIONS_FOR_RATE);
+    private final SlidingLeaderboard merchantLeaderboard = new SlidingLeaderboard(WINDOW_BUCKET_SECONDS, WINDOW_BUCKET_COUNT, MIN_TRANSACTIONS_FOR_RATE);
+    private volatile int topN = DEFAULT_TOP_N;
+
+    /**
+     * Records a processed transaction and whether it raised an alert.
+     *
+     * @param transaction      The processed transaction.
+     * @param fraudFlaggerList The rules flagged for the transaction; empty if it raised no alert.
+     */
+    public void recordTransaction(Transaction transaction, List<FraudFlagger> fraudFlaggerList) {
+        boolean alert = !fraudFlaggerList.isEmpty();
+        long epochSecond = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        userLeaderboard.record(transaction.getUserId(), alert, epochSecond);
+        merchantLeaderboard.record(transaction.getMerchantName(), alert, epochSecond);
+    }
+
+    /**
+     * Registers this service with the platform MBean server.
+     *
+     * @param objectName The name to register under, OBJECT_NAME or a partition's name.
+     * @throws JMException If the service cannot be registered.
+     */
+    public void registerMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    }
+
+    @Override
+    public int getTopN() {
+        return topN;
+    }
+
+    @Override
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    @Override
+    public String[] getTopUsersByAlertCount() {
+        return userLeaderboard.topByAlertCount(topN).toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getTopMerchantsByAlertCount() {
+        return merchantLeaderboard.topByAlertCount(topN).toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getTopUsersByAlertRate() {
+        return userLeaderboard.topByAlertRate(topN).toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getTopMerchantsByAlertRate() {
+        return merchantLeaderboard.topByAlertRate(topN).toArray(new String[0]);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.service;
+
+/**
+ * This interface defines the JMX view of the alert leaderboards.
+ * Each attribute lists entries formatted as "key: alerts/transactions" over the last hour, highest first.
+ */
+public interface AlertLeaderboardServiceMBean {
+    int getTopN();
+
+    void setTopN(int topN);
+
+    String[] getTopUsersByAlertCount();
+
+    String[] getTopMerchantsByAlertCount();
+
+    String[] getTopUsersByAlertRate();
+
+    String[] getTopMerchantsByAlertRate();
+}
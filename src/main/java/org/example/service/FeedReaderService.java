@@ -0,0 +1,186 @@
+package org.example.service;
+
+import org.example.dao.CheckpointDAO;
+import org.example.entity.ReaderCheckpoint;
+import org.example.util.Hashing;
+import org.example.util.OffsetLineReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.example.GuardianWatchApp.LOGGER;
+
+/**
+ * This service class reads the rows of a CSV feed file, skipping its header line.
+ * It resumes from the last checkpoint of the file, if any, and checkpoints its position as it reads,
+ * and it can follow a file that is still being appended, like tail -f.
+ * Checkpoints record the identity of the file, its file key and a hash of its first PREFIX_HASH_BYTES bytes, so a feed rotated
+ * or replaced at the same path is read from the start instead of from an offset that may fall in the middle of one of its lines.
+ * It is shared by every reader of the feed, whether it ingests the rows itself or routes them to partitions.
+ */
+public class FeedReaderService {
+    public static final int CHECKPOINT_INTERVAL_LINES = 1000;
+    public static final long FOLLOW_POLL_INTERVAL_MILLIS = 500;
+    public static final int PREFIX_HASH_BYTES = 4096;
+    private final String filePath;
+    private final OffsetLineReader lineReader;
+    private final CheckpointDAO checkpointDAO;
+    private final boolean follow;
+    private final String fileKey;
+    private volatile boolean stopped;
+    private long checkpointedLineNumber;
+    private long readNanos;
+
+    /**
+     * Creates a reader that resumes from the last checkpoint of the file, if any.
+     * Only the position is resumed: the rows before the checkpoint are not read again.
+     * If the file at the path is not the one checkpointed, the checkpoint is logged and ignored, and the file is read from the start.
+     *
+     * @param filePath      The CSV file to read.
+     * @param checkpointDAO The store for the checkpoints, or null to always read the file from the top without checkpointing.
+     * @param follow        Whether to wait for more lines at the end of the file instead of stopping, like tail -f.
+     * @throws IOException If the file or its checkpoint cannot be read.
+     */
+    public FeedReaderService(String filePath, CheckpointDAO checkpointDAO, boolean follow) throws IOException {
+        this.filePath = filePath;
+        this.checkpointDAO = checkpointDAO;
+        this.follow = follow;
+
+        this.fileKey = fileKey(filePath);
+        ReaderCheckpoint checkpoint = checkpointDAO == null ? null : checkpointDAO.getCheckpoint(filePath);
+        if (checkpoint != null && !isCheckpointedFile(checkpoint)) {
+            LOGGER.warning(String.format("%s is not the file checkpointed at line %d, it was rotated or replaced; reading it from the start", filePath, checkpoint.getLineNumber()));
+            checkpoint = null;
+        }
+        if (checkpoint == null) {
+            this.lineReader = new OffsetLineReader(filePath, 0, 0);
+        } else {
+            LOGGER.info(String.format("Resuming %s from line %d (offset %d)", filePath, checkpoint.getLineNumber(), checkpoint.getOffset()));
+            this.lineReader = new OffsetLineReader(filePath, checkpoint.getOffset(), checkpoint.getLineNumber());
+        }
+        this.checkpointedLineNumber = lineReader.getLineNumber();
+    }
+
+    /**
+     * Reads the next row of the file.
+     * The position is checkpointed every CHECKPOINT_INTERVAL_LINES lines, when the caller asks for the next row,
+     * so a checkpoint never covers a row the caller has not finished with.
+     * When following the file, this method waits for new lines at the end of the file until {@link #stop()} is called.
+     *
+     * @return The next row, or null if there are no more rows.
+     * @throws IOException If there is an error reading the file.
+     */
+    public String getNextLine() throws IOException {
+        if (lineReader.getLineNumber() - checkpointedLineNumber >= CHECKPOINT_INTERVAL_LINES) {
+            saveCheckpoint();
+        }
+        while (!stopped) {
+            long startNanos = System.nanoTime();
+            String line = follow ? lineReader.readLine() : lineReader.readLastLine();
+            readNanos += System.nanoTime() - startNanos;
+            if (line != null && lineReader.getLineNumber() == 1) {
+                continue; // Skip the header line
+            }
+            if (line != null) {
+                return line;
+            }
+            if (!follow) {
+                break;
+            }
+            saveCheckpoint();
+            try {
+                Thread.sleep(FOLLOW_POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        saveCheckpoint();
+        lineReader.close();
+        return null;
+    }
+
+    /**
+     * Stops following the file; the pending or next call to getNextLine returns null.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return The number of lines read so far, counting from the start of the file.
+     */
+    public long getLineNumber() {
+        return lineReader.getLineNumber();
+    }
+
+    /**
+     * @return The time spent reading lines from the file so far in nanoseconds, excluding the waits for new lines and the checkpoints.
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return The path of the file read.
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Called before each checkpoint is saved, once the caller has finished with the rows it covers.
+     *
+     * @param firstLine The number of the first line covered by the checkpoint and not by the previous one.
+     * @param lastLine  The number of the last line covered by the checkpoint.
+     * @throws IOException If the rows cannot be completed; the checkpoint is then not saved.
+     */
+    protected void beforeCheckpoint(long firstLine, long lastLine) throws IOException {
+    }
+
+    private void saveCheckpoint() throws IOException {
+        if (lineReader.getLineNumber() == checkpointedLineNumber) {
+            return;
+        }
+        beforeCheckpoint(checkpointedLineNumber + 1, lineReader.getLineNumber());
+        if (checkpointDAO != null) {
+            long offset = lineReader.getOffset();
+            checkpointDAO.saveCheckpoint(new ReaderCheckpoint(filePath, offset, lineReader.getLineNumber(), fileKey, prefixHash(lineReader, offset)));
+        }
+        checkpointedLineNumber = lineReader.getLineNumber();
+    }
+
+    /**
+     * Checks if the file at the path is still the one a checkpoint was saved for: it is at least as long as the checkpointed offset,
+     * and it has the same file key and the same first bytes. Checkpoints saved without an identity are only checked against the length.
+     */
+    private boolean isCheckpointedFile(ReaderCheckpoint checkpoint) throws IOException {
+        if (Files.size(Paths.get(filePath)) < checkpoint.getOffset()) {
+            return false;
+        }
+        if (checkpoint.getFileKey() != null && !checkpoint.getFileKey().equals(fileKey)) {
+            return false;
+        }
+        if (checkpoint.getPrefixHash() == null) {
+            return true;
+        }
+        try (OffsetLineReader prefixReader = new OffsetLineReader(filePath, 0, 0)) {
+            return checkpoint.getPrefixHash() == prefixHash(prefixReader, checkpoint.getOffset());
+        }
+    }
+
+    private static String fileKey(String filePath) throws IOException {
+        Object fileKey = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class).fileKey();
+        return fileKey == null ? null : fileKey.toString();
+    }
+
+    /**
+     * Hashes the first bytes of the file, up to PREFIX_HASH_BYTES and never past the offset, so appending to the file does not change the hash.
+     */
+    private static long prefixHash(OffsetLineReader reader, long offset) throws IOException {
+        byte[] prefix = new byte[(int) Math.min(offset, PREFIX_HASH_BYTES)];
+        return Hashing.hash(prefix, reader.readPrefix(prefix));
+    }
+}
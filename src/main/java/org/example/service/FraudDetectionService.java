@@ -4,11 +4,16 @@ import org.example.dao.MerchantDAO;
 import org.example.dao.TransactionDAO;
 import org.example.dao.UserDAO;
 import org.example.entity.FraudFlagger;
+import org.example.entity.SpendingProfile;
+import org.example.entity.ThresholdSetting;
 import org.example.entity.Transaction;
+import org.example.entity.TransactionStats;
 import org.example.entity.User;
+import org.example.event.StatsCollectionEvent;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.*;
 
 public class FraudDetectionService implements IFraudDetectionService {
@@ -17,14 +22,25 @@ public class FraudDetectionService implements IFraudDetectionService {
     public static final int MAX_TRANSACTION_COUNT_PER_MINUTE = 3;
     public static final int MAX_TRANSACTION_COUNT_PER_HOUR = 5;
     public static final int FRAUDULENT_MERCHANT_THRESHOLD = 10;
+    public static final int MAX_DISTINCT_MERCHANT_COUNT_PER_HOUR = 5;
+    public static final int MAX_DISTINCT_MERCHANT_COUNT_PER_DAY = 10;
+    public static final int MIN_PROFILE_TRANSACTION_COUNT = 10;
+    public static final int MIN_UNUSUAL_PROFILE_FEATURE_COUNT = 3;
+    public static final ThresholdSetting DEFAULT_THRESHOLD_SETTING = new ThresholdSetting(HIGH_AMOUNT_THRESHOLD, MAX_TRANSACTION_COUNT_PER_MINUTE, MAX_TRANSACTION_COUNT_PER_HOUR, MAX_TRANSACTION_COUNT_PER_MERCHANT_PER_DAY, FRAUDULENT_MERCHANT_THRESHOLD, MAX_DISTINCT_MERCHANT_COUNT_PER_HOUR, MAX_DISTINCT_MERCHANT_COUNT_PER_DAY);
     public UserDAO userDAO;
     public MerchantDAO merchantDAO;
     public TransactionDAO transactionDAO;
+    private final ThresholdSetting thresholdSetting;
 
     public FraudDetectionService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO) {
+        this(userDAO, merchantDAO, transactionDAO, DEFAULT_THRESHOLD_SETTING);
+    }
+
+    public FraudDetectionService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO, ThresholdSetting thresholdSetting) {
         this.merchantDAO = merchantDAO;
         this.userDAO = userDAO;
         this.transactionDAO = transactionDAO;
+        this.thresholdSetting = thresholdSetting;
     }
 
     /**
@@ -35,11 +51,97 @@ public class FraudDetectionService implements IFraudDetectionService {
      */
     @Override
     public List<FraudFlagger> detectFraud(Transaction transaction) {
-        boolean highAmountTransaction = isHighAmountTransaction(transaction);
-        boolean oddTimeTransaction = isOddTimeTransaction(transaction); // in extension
-        boolean tooManyTransactionAcrossMerchant = isTooManyTransactionAcrossMerchant(transaction);
-        boolean tooManyTransactionWithSameMerchant = isTooManyTransactionWithSameMerchant(transaction);
-        boolean fraudulentMerchant = isFraudulentMerchant(transaction);
+        TransactionStats transactionStats = collectTransactionStats(transaction);
+        int merchantFraudulentCount = merchantDAO.getFraudulentCount(transaction.getMerchantName());
+        List<FraudFlagger> fraudFlaggers = evaluate(transaction, transactionStats, merchantFraudulentCount, thresholdSetting);
+        updateSpendingProfile(transaction);
+        return fraudFlaggers;
+    }
+
+    /**
+     * This method computes the threshold independent values needed by the rules for a transaction.
+     * It fetches the user's transactions of the last day once and derives the minute, hour and same merchant counts from it,
+     * instead of querying the transaction list once per window.
+     * It then scores the transaction against the user's spending profile. It does not change any state, so the transaction
+     * must be added to the profile with {@link #updateSpendingProfile(Transaction)} once it has been scored.
+     * The collection is recorded as a {@link StatsCollectionEvent}, since the scan and the user lookup are the costly part of detection.
+     *
+     * @param transaction The transaction to be checked.
+     * @return The window counts, the median transaction amount and the spending profile scores of the user.
+     */
+    public TransactionStats collectTransactionStats(Transaction transaction) {
+        StatsCollectionEvent event = new StatsCollectionEvent();
+        event.begin();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        LocalDateTime lastOneMinute = timestamp.minusMinutes(1);
+        LocalDateTime lastOneHour = timestamp.minusHours(1);
+
+        int transactionCountInLastMinute = 0;
+        int transactionCountInLastHour = 0;
+        int sameMerchantTransactionCountInLastDay = 0;
+        List<Transaction> lastOneDayTransactions = transactionDAO.getPreviousTransactionsForAUser(timestamp.minusDays(1), transaction.getUserId());
+        for (Transaction previousTransaction : lastOneDayTransactions) {
+            if (!previousTransaction.getTimestamp().isBefore(lastOneMinute)) {
+                ++transactionCountInLastMinute;
+            }
+            if (!previousTransaction.getTimestamp().isBefore(lastOneHour)) {
+                ++transactionCountInLastHour;
+            }
+            if (previousTransaction.getMerchantName().equals(transaction.getMerchantName())) {
+                ++sameMerchantTransactionCountInLastDay;
+            }
+        }
+
+        User user = userDAO.getUser(transaction.getUserId());
+        long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        long distinctMerchantCountInLastHour = user.getMerchantsInLastHour().count(epochSecond);
+        long distinctMerchantCountInLastDay = user.getMerchantsInLastDay().count(epochSecond);
+        TransactionStats transactionStats = new TransactionStats(transactionCountInLastMinute, transactionCountInLastHour, sameMerchantTransactionCountInLastDay, distinctMerchantCountInLastHour, distinctMerchantCountInLastDay, user.getMedianTransactionAmount());
+
+        SpendingProfile spendingProfile = user.getSpendingProfile();
+        transactionStats.setProfileTransactionCount(spendingProfile.getTransactionCount());
+        transactionStats.setUnusualAmount(spendingProfile.isUnusualAmount(transaction.getAmount()));
+        transactionStats.setUnusualHour(spendingProfile.isUnusualHour(timestamp));
+        transactionStats.setUnusualDay(spendingProfile.isUnusualDay(timestamp));
+        transactionStats.setUnusualMerchant(spendingProfile.isUnusualMerchant(transaction.getMerchantName()));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.userId = transaction.getUserId();
+            event.windowTransactionCount = lastOneDayTransactions.size();
+            event.commit();
+        }
+        return transactionStats;
+    }
+
+    /**
+     * This method adds a transaction to the user's spending profile, so later transactions are scored against it.
+     * It must be called once per transaction, after the transaction has been scored, so each transaction is only scored against the user's earlier habits.
+     *
+     * @param transaction The transaction that has been scored.
+     */
+    public void updateSpendingProfile(Transaction transaction) {
+        userDAO.getUser(transaction.getUserId()).getSpendingProfile().add(transaction);
+    }
+
+    /**
+     * This method applies the fraud detection rules for one threshold setting.
+     * It only reads the precomputed stats, so it can be called for many settings on the same transaction.
+     *
+     * @param transaction             The transaction to be checked.
+     * @param transactionStats        The precomputed window counts and median for the transaction.
+     * @param merchantFraudulentCount The number of fraudulent transactions seen so far for the merchant.
+     * @param thresholdSetting        The thresholds to apply.
+     * @return The list of rules flagged for the transaction.
+     */
+    public static List<FraudFlagger> evaluate(Transaction transaction, TransactionStats transactionStats, int merchantFraudulentCount, ThresholdSetting thresholdSetting) {
+        boolean highAmountTransaction = isHighAmountTransaction(transaction, transactionStats, thresholdSetting);
+        boolean oddTimeTransaction = isOddTimeTransaction(transaction, transactionStats);
+        boolean tooManyTransactionAcrossMerchant = isTooManyTransactionAcrossMerchant(transactionStats, thresholdSetting);
+        boolean tooManyTransactionWithSameMerchant = isTooManyTransactionWithSameMerchant(transactionStats, thresholdSetting);
+        boolean fraudulentMerchant = isFraudulentMerchant(merchantFraudulentCount, thresholdSetting);
+        boolean tooManyDistinctMerchant = isTooManyDistinctMerchant(transactionStats, thresholdSetting);
+        boolean unusualSpendingPattern = isUnusualSpendingPattern(transactionStats);
 
         List<FraudFlagger> fraudFlaggers = new ArrayList<>();
         if (highAmountTransaction) fraudFlaggers.add(FraudFlagger.HIGH_AMOUNT_TRANSACTION);
@@ -47,79 +149,128 @@ public class FraudDetectionService implements IFraudDetectionService {
         if (tooManyTransactionWithSameMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_TRANSACTION_WITH_SAME_MERCHANT);
         if (tooManyTransactionAcrossMerchant && !tooManyTransactionWithSameMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_TRANSACTION_ACROSS_MERCHANT);
         if (fraudulentMerchant) fraudFlaggers.add(FraudFlagger.FRAUDULENT_MERCHANT);
+        if (tooManyDistinctMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT);
+        if (unusualSpendingPattern) fraudFlaggers.add(FraudFlagger.UNUSUAL_SPENDING_PATTERN);
         return fraudFlaggers;
     }
 
     /**
      * This method checks if a transaction amount is unusually high or low.
-     * It does this by comparing the transaction amount with the median of all previous transactions of the user.
+     * It compares the transaction amount with the median of all previous transactions of the user.
+     * Once the user has a spending profile, an amount outside the threshold band is only flagged if amounts of this size are also rare
+     * in the user's amount histogram, so the profile clears users who regularly spend far from their median but never flags more than the band.
      *
-     * @param transaction The transaction to be checked.
+     * @param transaction      The transaction to be checked.
+     * @param transactionStats The precomputed stats holding the user's median transaction amount and profile scores.
+     * @param thresholdSetting The thresholds to apply.
      * @return A boolean indicating whether the transaction amount is unusually high or low.
      */
-    boolean isHighAmountTransaction(Transaction transaction) {
-        String userId = transaction.getUserId();
-        User user = userDAO.getUser(userId);
-        return transaction.getAmount() > user.getMedianTransactionAmount() * HIGH_AMOUNT_THRESHOLD || transaction.getAmount() < user.getMedianTransactionAmount() / HIGH_AMOUNT_THRESHOLD;
+    static boolean isHighAmountTransaction(Transaction transaction, TransactionStats transactionStats, ThresholdSetting thresholdSetting) {
+        double median = transactionStats.getMedianTransactionAmount();
+        int threshold = thresholdSetting.getHighAmountThreshold();
+        boolean outsideBand = transaction.getAmount() > median * threshold || transaction.getAmount() < median / threshold;
+        if (hasSpendingProfile(transactionStats)) {
+            return outsideBand && transactionStats.isUnusualAmount();
+        }
+        return outsideBand;
     }
 
     /**
      * This method checks if a transaction was made at an odd time.
-     * It does this by checking if the transaction time is between 2 PM and 6 AM.
+     * Once the user has a spending profile, it checks if the user rarely transacts around this hour of the day.
+     * Before that, it checks if the transaction time is between 2 AM and 6 AM.
      *
-     * @param transaction The transaction to be checked.
+     * @param transaction      The transaction to be checked.
+     * @param transactionStats The precomputed profile scores for the transaction.
      * @return A boolean indicating whether the transaction was made at an odd time.
      */
-    boolean isOddTimeTransaction(Transaction transaction) {
+    static boolean isOddTimeTransaction(Transaction transaction, TransactionStats transactionStats) {
+        if (hasSpendingProfile(transactionStats)) {
+            return transactionStats.isUnusualHour();
+        }
         LocalTime transactionTime = LocalTime.from(transaction.getTimestamp());
 
-        LocalDateTime startTime = LocalDateTime.now().withHour(2).withMinute(0).withSecond(0);
-        LocalDateTime endTime = LocalDateTime.now().withHour(6).withMinute(0).withSecond(0);
+        LocalTime startTime = LocalTime.of(2, 0);
+        LocalTime endTime = LocalTime.of(6, 0);
 
-        // Check if the transaction time is between 2 PM and 6 AM
-        return (transactionTime.isAfter(LocalTime.from(startTime)) && transactionTime.isBefore(LocalTime.from(endTime)));
+        // Check if the transaction time is between 2 AM and 6 AM
+        return (transactionTime.isAfter(startTime) && transactionTime.isBefore(endTime));
     }
 
     /**
      * This method checks if a user is making transactions too frequently.
      * It does this by checking the number of transactions made by the user in the last minute and the last hour.
-     * If the user has made 3 or more transactions in the last minute or 5 or more transactions in the last hour, the user is considered to be making transactions too frequently.
+     * By default, if the user has made 3 or more transactions in the last minute or 5 or more transactions in the last hour, the user is considered to be making transactions too frequently.
      *
-     * @param transaction The transaction to be checked.
+     * @param transactionStats The precomputed window counts for the transaction.
+     * @param thresholdSetting The thresholds to apply.
      * @return A boolean indicating whether the user is making transactions too frequently.
      */
-    boolean isTooManyTransactionAcrossMerchant(Transaction transaction) {
-        List<Transaction> numberOfTransactionsInLastOneMinute = transactionDAO.getPreviousTransactionsForAUser(LocalDateTime.now().minusMinutes(1), transaction.getUserId()); // last 1 minute
-        if (numberOfTransactionsInLastOneMinute.size() >= MAX_TRANSACTION_COUNT_PER_MINUTE) { // 3 transactions
+    static boolean isTooManyTransactionAcrossMerchant(TransactionStats transactionStats, ThresholdSetting thresholdSetting) {
+        if (transactionStats.getTransactionCountInLastMinute() >= thresholdSetting.getMaxTransactionCountPerMinute()) {
             return true;
         }
-
-        List<Transaction> numberOfTransactionsInLastOneHour = transactionDAO.getPreviousTransactionsForAUser(LocalDateTime.now().minusHours(1), transaction.getUserId()); // last 1 hour
-        return numberOfTransactionsInLastOneHour.size() >= MAX_TRANSACTION_COUNT_PER_HOUR; // 5 transactions
+        return transactionStats.getTransactionCountInLastHour() >= thresholdSetting.getMaxTransactionCountPerHour();
     }
 
     /**
      * This method checks if a transaction was made with a fraudulent merchant.
      * It does this by checking if the merchant associated with the transaction is marked as fraudulent.
      *
-     * @param transaction The transaction to be checked.
+     * @param merchantFraudulentCount The number of fraudulent transactions seen so far for the merchant.
+     * @param thresholdSetting        The thresholds to apply.
      * @return A boolean indicating whether the transaction was made with a fraudulent merchant.
      */
-    boolean isFraudulentMerchant(Transaction transaction) {
-        return merchantDAO.getFraudulentCount(transaction.getMerchantName()) >= FRAUDULENT_MERCHANT_THRESHOLD;
+    static boolean isFraudulentMerchant(int merchantFraudulentCount, ThresholdSetting thresholdSetting) {
+        return merchantFraudulentCount >= thresholdSetting.getFraudulentMerchantThreshold();
     }
 
     /**
      * This method checks if a user is making too many transactions with the same merchant.
      * It does this by checking the number of transactions made by the user with the same merchant in the last day.
      *
-     * @param transaction The transaction to be checked.
+     * @param transactionStats The precomputed window counts for the transaction.
+     * @param thresholdSetting The thresholds to apply.
      * @return A boolean indicating whether the user is making too many transactions with the same merchant.
      */
-    boolean isTooManyTransactionWithSameMerchant(Transaction transaction) {
-        List<Transaction> lastOneDayTransactions = transactionDAO.getPreviousTransactionsForAUser(LocalDateTime.now().minusDays(1), transaction.getUserId());
-        long count = lastOneDayTransactions.stream().filter(t -> t.getMerchantName().equals(transaction.getMerchantName())).count();
-        return count >= MAX_TRANSACTION_COUNT_PER_MERCHANT_PER_DAY;
+    static boolean isTooManyTransactionWithSameMerchant(TransactionStats transactionStats, ThresholdSetting thresholdSetting) {
+        return transactionStats.getSameMerchantTransactionCountInLastDay() >= thresholdSetting.getMaxTransactionCountPerMerchantPerDay();
     }
-}
 
+    /**
+     * This method checks if a user is making transactions with too many different merchants, which is typical of card testing.
+     * It does this by checking the number of distinct merchants the user transacted with in the last hour and the last day.
+     * The counts come from per user sketches, so they are exact for light users and estimated for heavy ones.
+     *
+     * @param transactionStats The precomputed distinct merchant counts for the transaction.
+     * @param thresholdSetting The thresholds to apply.
+     * @return A boolean indicating whether the user is transacting with too many distinct merchants.
+     */
+    static boolean isTooManyDistinctMerchant(TransactionStats transactionStats, ThresholdSetting thresholdSetting) {
+        return transactionStats.getDistinctMerchantCountInLastHour() >= thresholdSetting.getMaxDistinctMerchantCountPerHour()
+                || transactionStats.getDistinctMerchantCountInLastDay() >= thresholdSetting.getMaxDistinctMerchantCountPerDay();
+    }
+
+    /**
+     * This method checks if a transaction does not fit the user's habits as a whole.
+     * It does this by counting how many of the amount, hour of the day, day of the week and merchant are unusual for the user,
+     * and flags the transaction when at least MIN_UNUSUAL_PROFILE_FEATURE_COUNT of them are.
+     *
+     * @param transactionStats The precomputed profile scores for the transaction.
+     * @return A boolean indicating whether the transaction departs from the user's spending pattern.
+     */
+    static boolean isUnusualSpendingPattern(TransactionStats transactionStats) {
+        if (!hasSpendingProfile(transactionStats)) {
+            return false;
+        }
+        int unusualFeatureCount = (transactionStats.isUnusualAmount() ? 1 : 0)
+                + (transactionStats.isUnusualHour() ? 1 : 0)
+                + (transactionStats.isUnusualDay() ? 1 : 0)
+                + (transactionStats.isUnusualMerchant() ? 1 : 0);
+        return unusualFeatureCount >= MIN_UNUSUAL_PROFILE_FEATURE_COUNT;
+    }
+
+    private static boolean hasSpendingProfile(TransactionStats transactionStats) {
+        return transactionStats.getProfileTransactionCount() >= MIN_PROFILE_TRANSACTION_COUNT;
+    }
+}
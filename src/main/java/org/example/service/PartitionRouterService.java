@@ -0,0 +1,213 @@
+package org.example.service;
+
+import org.example.dao.CheckpointDAO;
+import org.example.util.ConsistentHashRing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.example.GuardianWatchApp.LOGGER;
+
+/**
+ * This service class splits the input feed across partition processes running on the same machine.
+ * Each transaction is forwarded to the partition owning its user ID on a consistent hash ring, so all the state of a user
+ * lives in a single partition. Merchant fraudulent counts are global: the alerts reported by the partitions are summed
+ * here and the totals are sent back to every partition every SYNC_INTERVAL_MILLIS, when forwarded rows are also flushed.
+ * The feed is read through a {@link FeedReaderService}, so the router checkpoints its position like the single process reader,
+ * in its own ROUTER_CHECKPOINT_SUFFIX checkpoint file, and can follow the file. Rows are flushed to the partitions before each checkpoint.
+ * See {@link PartitionWorkerService} for the line protocol.
+ */
+public class PartitionRouterService {
+    public static final long SYNC_INTERVAL_MILLIS = 1000;
+    public static final String ROUTER_CHECKPOINT_SUFFIX = ".router" + CheckpointDAO.CHECKPOINT_SUFFIX;
+
+    private final List<Integer> ports;
+    private final String filePath;
+    private final CheckpointDAO checkpointDAO;
+    private final boolean follow;
+    private volatile FeedReaderService feedReaderService;
+    private volatile boolean stopped;
+    private final ConsistentHashRing consistentHashRing;
+    private final List<BufferedWriter> writers = new ArrayList<>();
+    private final Map<String, Integer> globalFraudulentCounts = new HashMap<>();
+    private final Set<String> changedMerchants = new HashSet<>();
+    private final Timer timer = new Timer(true);
+
+    /**
+     * Creates a router that reads the whole file, without checkpointing.
+     *
+     * @param ports    The local ports of the partitions, in partition order.
+     * @param filePath The CSV file to route.
+     */
+    public PartitionRouterService(List<Integer> ports, String filePath) {
+        this(ports, filePath, null, false);
+    }
+
+    /**
+     * @param ports         The local ports of the partitions, in partition order.
+     * @param filePath      The CSV file to route.
+     * @param checkpointDAO The store for the checkpoints, or null to always route the file from the top without checkpointing.
+     * @param follow        Whether to wait for more lines at the end of the file instead of stopping, like tail -f.
+     */
+    public PartitionRouterService(List<Integer> ports, String filePath, CheckpointDAO checkpointDAO, boolean follow) {
+        this.ports = ports;
+        this.filePath = filePath;
+        this.checkpointDAO = checkpointDAO;
+        this.follow = follow;
+        this.consistentHashRing = new ConsistentHashRing(ports.size());
+    }
+
+    /**
+     * Connects to every partition, forwards each row of the CSV file to the partition owning its user,
+     * starting after the last checkpoint if any, then ends the feed and waits for the partitions to report their last alerts.
+     *
+     * @return The global fraudulent count of every merchant with at least one alert.
+     * @throws IOException          If there is an error reading the file or talking to a partition.
+     * @throws InterruptedException If interrupted while waiting for the partitions.
+     */
+    public Map<String, Integer> route() throws IOException, InterruptedException {
+        List<Socket> sockets = new ArrayList<>();
+        List<Thread> listeners = new ArrayList<>();
+        for (int port : ports) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            sockets.add(socket);
+            writers.add(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+            Thread listener = new Thread(() -> listen(socket), "partition-listener-" + port);
+            listener.start();
+            listeners.add(listener);
+        }
+
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    broadcastFraudulentCounts();
+                } catch (IOException e) {
+                    LOGGER.warning("Could not send merchant fraudulent counts: " + e.getMessage());
+                    cancel();
+                }
+            }
+        }, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS);
+
+        long[] routedCounts = new long[ports.size()];
+        feedReaderService = new FeedReaderService(filePath, checkpointDAO, follow) {
+            @Override
+            protected void beforeCheckpoint(long firstLine, long lastLine) throws IOException {
+                flush();
+            }
+        };
+        if (stopped) {
+            feedReaderService.stop();
+        }
+        String line;
+        while ((line = feedReaderService.getNextLine()) != null) {
+            int separator = line.indexOf(',');
+            if (separator < 0) {
+                LOGGER.warning("Skipping transaction that cannot be parsed: " + line);
+                continue;
+            }
+            int partition = consistentHashRing.getPartition(line.substring(0, separator));
+            send(partition, "T," + line);
+            ++routedCounts[partition];
+        }
+
+        timer.cancel();
+        broadcastFraudulentCounts();
+        for (int partition = 0; partition < ports.size(); partition++) {
+            send(partition, "E");
+            LOGGER.info(String.format("Routed %d transactions to partition %d on port %d", routedCounts[partition], partition, ports.get(partition)));
+        }
+        for (Thread listener : listeners) {
+            listener.join();
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        synchronized (globalFraudulentCounts) {
+            return new HashMap<>(globalFraudulentCounts);
+        }
+    }
+
+    /**
+     * Stops following the file; the router then ends the feed of every partition and returns.
+     */
+    public void stop() {
+        stopped = true;
+        FeedReaderService reader = feedReaderService;
+        if (reader != null) {
+            reader.stop();
+        }
+    }
+
+    private void listen(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("M,")) {
+                    continue;
+                }
+                int separator = line.lastIndexOf(',');
+                String merchantName = line.substring(2, separator);
+                synchronized (globalFraudulentCounts) {
+                    globalFraudulentCounts.merge(merchantName, Integer.parseInt(line.substring(separator + 1)), Integer::sum);
+                    changedMerchants.add(merchantName);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Lost connection to partition: " + e.getMessage());
+        }
+    }
+
+    private void broadcastFraudulentCounts() throws IOException {
+        List<String> lines = new ArrayList<>();
+        synchronized (globalFraudulentCounts) {
+            for (String merchantName : changedMerchants) {
+                lines.add("G," + merchantName + "," + globalFraudulentCounts.get(merchantName));
+            }
+            changedMerchants.clear();
+        }
+        for (BufferedWriter writer : writers) {
+            synchronized (writer) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.flush();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        for (BufferedWriter writer : writers) {
+            synchronized (writer) {
+                writer.flush();
+            }
+        }
+    }
+
+    private void send(int partition, String line) throws IOException {
+        BufferedWriter writer = writers.get(partition);
+        synchronized (writer) {
+            writer.write(line);
+            writer.newLine();
+            if (line.equals("E")) {
+                writer.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.service;
+
+import org.example.dao.PartitionMerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.Transaction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.example.GuardianWatchApp.LOGGER;
+
+/**
+ * This service class is the transaction source of a partition process.
+ * It accepts one connection from the router on a local port and reads the lines sent over it:
+ * "T,&lt;CSV row&gt;" is a transaction of a user owned by this partition, "G,&lt;merchant&gt;,&lt;count&gt;" is a global merchant
+ * fraudulent count and "E" ends the feed. Every SYNC_INTERVAL_MILLIS it sends the merchant alerts raised locally
+ * back to the router as "M,&lt;merchant&gt;,&lt;count&gt;" lines.
+ */
+public class PartitionWorkerService implements ITransactionReaderService {
+    public static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private final ServerSocket serverSocket;
+    private final PartitionMerchantDAO merchantDAO;
+    private final TransactionIngestService transactionIngestService;
+    private final Timer timer = new Timer(true);
+    private Socket socket;
+    private BufferedReader reader;
+    private BufferedWriter writer;
+
+    /**
+     * Creates a partition listening on the given local port.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public PartitionWorkerService(int port, UserDAO userDAO, PartitionMerchantDAO merchantDAO, TransactionDAO transactionDAO) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        this.merchantDAO = merchantDAO;
+        this.transactionIngestService = new TransactionIngestService(userDAO, merchantDAO, transactionDAO);
+    }
+
+    /**
+     * @return The local port this partition listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits for the router to connect and starts reporting local merchant alerts to it.
+     *
+     * @throws IOException If the connection fails.
+     */
+    public void accept() throws IOException {
+        socket = serverSocket.accept();
+        serverSocket.close();
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        LOGGER.info("Partition on port " + getPort() + " connected to router");
+
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    reportFraudulentCounts();
+                } catch (IOException e) {
+                    LOGGER.warning("Could not report merchant fraudulent counts: " + e.getMessage());
+                    cancel();
+                }
+            }
+        }, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Reads the next transaction routed to this partition, applying the global merchant counts received in between.
+     * When the feed ends, the remaining local alerts are reported and the connection is closed.
+     *
+     * @return The next Transaction, or null if the router ended the feed.
+     * @throws IOException If there is an error reading from the router.
+     */
+    @Override
+    public Transaction getNextTransaction() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("T,")) {
+                Transaction transaction = transactionIngestService.tryIngest(line.substring(2));
+                if (transaction != null) {
+                    return transaction;
+                }
+            } else if (line.startsWith("G,")) {
+                int separator = line.lastIndexOf(',');
+                merchantDAO.setGlobalFraudulentCount(line.substring(2, separator), Integer.parseInt(line.substring(separator + 1)));
+            } else if (line.equals("E")) {
+                break;
+            }
+        }
+        timer.cancel();
+        reportFraudulentCounts();
+        socket.close();
+        return null;
+    }
+
+    private void reportFraudulentCounts() throws IOException {
+        Map<String, Integer> unreported = merchantDAO.drainUnreportedFraudulentCounts();
+        if (unreported.isEmpty()) {
+            return;
+        }
+        synchronized (writer) {
+            for (Map.Entry<String, Integer> entry : unreported.entrySet()) {
+                writer.write("M," + entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+            writer.flush();
+        }
+    }
+}
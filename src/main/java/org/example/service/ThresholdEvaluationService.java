@@ -0,0 +1,119 @@
+package org.example.service;
+
+import org.example.dao.MerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.FraudFlagger;
+import org.example.entity.ThresholdEvaluationResult;
+import org.example.entity.ThresholdSetting;
+import org.example.entity.Transaction;
+import org.example.entity.TransactionStats;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.GuardianWatchApp.LOGGER;
+
+/**
+ * This service class evaluates a grid of threshold settings in a single pass over the transactions.
+ * The window counts and the median of every transaction are computed once and shared by all settings,
+ * so comparing N candidate settings costs one pass instead of N.
+ */
+public class ThresholdEvaluationService {
+    public static final int THRESHOLD_GRID_COLUMN_COUNT = 7;
+    private final UserService userService;
+    private final FraudDetectionService fraudDetectionService;
+    private final List<ThresholdSetting> thresholdSettings;
+
+    public ThresholdEvaluationService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO, List<ThresholdSetting> thresholdSettings) {
+        this.userService = new UserService(userDAO, transactionDAO);
+        this.fraudDetectionService = new FraudDetectionService(userDAO, merchantDAO, transactionDAO);
+        this.thresholdSettings = thresholdSettings;
+    }
+
+    /**
+     * This method reads every transaction from the reader and evaluates it against all threshold settings.
+     * The user's median is refreshed before each transaction instead of by the hourly timer, so the result is deterministic.
+     * Merchant fraudulent counts depend on earlier alerts, so they are tracked separately for each setting.
+     *
+     * @param transactionReaderService The source of the transactions.
+     * @return The flag counts and overlaps of all settings.
+     * @throws IOException If there is an error reading the transactions.
+     */
+    public ThresholdEvaluationResult evaluate(ITransactionReaderService transactionReaderService) throws IOException {
+        int size = thresholdSettings.size();
+        List<Map<String, Integer>> merchantFraudulentCounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            merchantFraudulentCounts.add(new HashMap<>());
+        }
+        ThresholdEvaluationResult result = new ThresholdEvaluationResult(thresholdSettings);
+
+        Transaction transaction;
+        while ((transaction = transactionReaderService.getNextTransaction()) != null) {
+            userService.updateMedianTransactionAmount(transaction.getUserId());
+            TransactionStats transactionStats = fraudDetectionService.collectTransactionStats(transaction);
+
+            List<List<FraudFlagger>> fraudFlaggers = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Map<String, Integer> merchantFraudulentCount = merchantFraudulentCounts.get(i);
+                int count = merchantFraudulentCount.getOrDefault(transaction.getMerchantName(), 0);
+                List<FraudFlagger> settingFraudFlaggers = FraudDetectionService.evaluate(transaction, transactionStats, count, thresholdSettings.get(i));
+                fraudFlaggers.add(settingFraudFlaggers);
+                if (!settingFraudFlaggers.isEmpty()) {
+                    merchantFraudulentCount.put(transaction.getMerchantName(), count + 1);
+                }
+            }
+            result.addTransaction(fraudFlaggers);
+            fraudDetectionService.updateSpendingProfile(transaction);
+        }
+        return result;
+    }
+
+    /**
+     * This method reads a grid of threshold settings from a CSV file.
+     * Each row holds the high amount threshold, the max transaction count per minute, per hour, per merchant per day,
+     * the fraudulent merchant threshold and the max distinct merchant count per hour and per day, in that order. The first line is a header.
+     * Rows without exactly THRESHOLD_GRID_COLUMN_COUNT integer columns are logged with their line number and skipped.
+     *
+     * @param filePath The path of the CSV file.
+     * @return The threshold settings in file order.
+     * @throws IOException If there is an error reading the file.
+     */
+    public static List<ThresholdSetting> readThresholdSettings(String filePath) throws IOException {
+        List<ThresholdSetting> thresholdSettings = new ArrayList<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(filePath))) {
+            bufferedReader.readLine(); // Skip the header line
+            String line;
+            int lineNumber = 1;
+            while ((line = bufferedReader.readLine()) != null) {
+                ++lineNumber;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] values = line.split(",", -1);
+                if (values.length != THRESHOLD_GRID_COLUMN_COUNT) {
+                    LOGGER.warning(String.format("Skipping threshold setting on line %d of %s: expected %d columns but found %d: %s", lineNumber, filePath, THRESHOLD_GRID_COLUMN_COUNT, values.length, line));
+                    continue;
+                }
+                try {
+                    thresholdSettings.add(new ThresholdSetting(
+                            Integer.parseInt(values[0].trim()),
+                            Integer.parseInt(values[1].trim()),
+                            Integer.parseInt(values[2].trim()),
+                            Integer.parseInt(values[3].trim()),
+                            Integer.parseInt(values[4].trim()),
+                            Integer.parseInt(values[5].trim()),
+                            Integer.parseInt(values[6].trim())));
+                } catch (NumberFormatException e) {
+                    LOGGER.warning(String.format("Skipping threshold setting on line %d of %s that cannot be parsed: %s (%s)", lineNumber, filePath, line, e));
+                }
+            }
+        }
+        return thresholdSettings;
+    }
+}
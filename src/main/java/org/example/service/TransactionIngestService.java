@@ -0,0 +1,103 @@
+package org.example.service;
+
+import org.example.dao.MerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.Merchant;
+import org.example.entity.Transaction;
+import org.example.entity.User;
+import org.example.util.DuplicateFilter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.example.GuardianWatchApp.LOGGER;
+
+/**
+ * This service class parses a CSV row into a Transaction and adds it to the corresponding User and Merchant.
+ * It is shared by every source of transactions, whether a file or a partition router.
+ */
+public class TransactionIngestService {
+    public static final int DUPLICATE_FILTER_EXPECTED_TRANSACTIONS_PER_DAY = 100_000;
+    public static final double DUPLICATE_FILTER_FALSE_POSITIVE_RATE = 0.0001;
+    public static final int DUPLICATE_FILTER_RETAINED_DAYS = 30;
+    public static final int DUPLICATE_FILTER_EXACT_DAYS = 2;
+    private final DuplicateFilter duplicateFilter = new DuplicateFilter(DUPLICATE_FILTER_EXPECTED_TRANSACTIONS_PER_DAY, DUPLICATE_FILTER_FALSE_POSITIVE_RATE, DUPLICATE_FILTER_RETAINED_DAYS, DUPLICATE_FILTER_EXACT_DAYS);
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private UserDAO userDAO;
+    private MerchantDAO merchantDAO;
+    private TransactionDAO transactionDAO;
+    private long duplicateCount;
+
+    public TransactionIngestService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO) {
+        this.userDAO = userDAO;
+        this.merchantDAO = merchantDAO;
+        this.transactionDAO = transactionDAO;
+    }
+
+    /**
+     * Parses a CSV row and adds the transaction to the DAOs.
+     * Rows already ingested before (same user, amount, timestamp and merchant) are skipped, so a feed delivered twice is only counted once.
+     * Skipped rows are only logged at FINE level; callers report the number skipped per batch using {@link #getDuplicateCount()}.
+     *
+     * @param line The CSV row: user ID, amount, timestamp and merchant name.
+     * @return The Transaction, or null if the row is a duplicate.
+     * @throws RuntimeException If the row cannot be parsed.
+     */
+    public Transaction ingest(String line) {
+        String[] values = line.split(",");
+
+        String userId = values[0];
+        double amount = Double.parseDouble(values[1]);
+        LocalDateTime timestamp = LocalDateTime.parse(values[2], formatter);
+        String merchantName = values[3];
+
+        // skip transactions already read, e.g. when a feed file is delivered twice
+        String key = userId + "," + amount + "," + timestamp + "," + merchantName;
+        if (!duplicateFilter.add(key, timestamp.toLocalDate().toEpochDay())) {
+            ++duplicateCount;
+            LOGGER.fine("Skipping duplicate transaction: " + line);
+            return null;
+        }
+
+        // create new merchant if it does not exist
+        Merchant merchant = new Merchant(merchantName);
+        merchantDAO.addMerchant(merchant);
+
+        User user = userDAO.getUser(userId);
+        if (user == null) {
+            user = new User(userId);
+            userDAO.addUser(user);
+        }
+
+        user.addMerchantVisit(merchantName, timestamp);
+
+        Transaction transaction = new Transaction(userId, amount, timestamp, merchantName);
+
+        transactionDAO.addTransaction(transaction);
+        return transaction;
+    }
+
+    /**
+     * @return The number of duplicate rows skipped so far.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * Parses a CSV row and adds the transaction to the DAOs, like {@link #ingest(String)}, but logs and skips a row that cannot be parsed.
+     * Every source of transactions uses it, so a malformed row is handled the same way whether the app runs as a single process or as partitions.
+     *
+     * @param line The CSV row: user ID, amount, timestamp and merchant name.
+     * @return The Transaction, or null if the row is a duplicate or cannot be parsed.
+     */
+    public Transaction tryIngest(String line) {
+        try {
+            return ingest(line);
+        } catch (RuntimeException e) {
+            LOGGER.warning("Skipping transaction that cannot be parsed: " + line + " (" + e + ")");
+            return null;
+        }
+    }
+}
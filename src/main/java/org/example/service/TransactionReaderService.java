@@ -1,79 +1,86 @@
 package org.example.service;
 
+import org.example.dao.CheckpointDAO;
 import org.example.dao.MerchantDAO;
 import org.example.dao.TransactionDAO;
 import org.example.dao.UserDAO;
-import org.example.entity.Merchant;
 import org.example.entity.Transaction;
-import org.example.entity.User;
+import org.example.event.IngestionBatchEvent;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 import static org.example.GuardianWatchApp.CSV_FILE_PATH;
+import static org.example.GuardianWatchApp.LOGGER;
 
-public class TransactionReaderService implements ITransactionReaderService {
-    private final BufferedReader bufferedReader;
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private UserDAO userDAO;
-    private MerchantDAO merchantDAO;
-    private TransactionDAO transactionDAO;
+public class TransactionReaderService extends FeedReaderService implements ITransactionReaderService {
+    private IngestionBatchEvent batchEvent;
+    private long reportedDuplicateCount;
+    private long batchStartReadNanos;
+    private final TransactionIngestService transactionIngestService;
 
     public TransactionReaderService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO) throws IOException {
-        this.bufferedReader = new BufferedReader(new FileReader(CSV_FILE_PATH));
-        bufferedReader.readLine(); // Skip the header line
-        this.userDAO = userDAO;
-        this.merchantDAO = merchantDAO;
-        this.transactionDAO = transactionDAO;
+        this(userDAO, merchantDAO, transactionDAO, CSV_FILE_PATH, null, false);
+    }
+
+    /**
+     * Creates a reader that resumes from the last checkpoint of the file, if any, and checkpoints its progress as it reads.
+     * Only the position is resumed: the transactions before the checkpoint are not read again, so the DAOs, the duplicate filter
+     * and the user state start empty, and the rules only see the transactions read since the restart.
+     *
+     * @param filePath      The CSV file to read.
+     * @param checkpointDAO The store for the checkpoints, or null to always read the file from the top without checkpointing.
+     * @param follow        Whether to wait for more lines at the end of the file instead of stopping, like tail -f.
+     * @throws IOException If the file or its checkpoint cannot be read.
+     */
+    public TransactionReaderService(UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO, String filePath, CheckpointDAO checkpointDAO, boolean follow) throws IOException {
+        super(filePath, checkpointDAO, follow);
+        this.transactionIngestService = new TransactionIngestService(userDAO, merchantDAO, transactionDAO);
+        beginBatch(getLineNumber() + 1);
     }
 
     /**
      * Reads the next transaction from the CSV file.
+     * Rows already read before (same user, amount, timestamp and merchant) are skipped, so a feed delivered twice is only counted once.
+     * Rows that cannot be parsed are logged and skipped.
+     * The lines between two checkpoints are recorded as an {@link IngestionBatchEvent}, with the time spent reading and ingesting them.
      *
      * @return The next Transaction, or null if there are no more transactions.
      * @throws IOException If there is an error reading the CSV file.
      */
     @Override
     public Transaction getNextTransaction() throws IOException {
-        String line = bufferedReader.readLine();
-        if (line != null) {
-            try {
-                String[] values = line.split(",");
-
-                String userId = values[0];
-                double amount = Double.parseDouble(values[1]);
-                LocalDateTime timestamp = LocalDateTime.parse(values[2], formatter);
-                String merchantName = values[3];
-
-                // create new merchant if it does not exist
-                Merchant merchant = new Merchant(merchantName);
-                merchantDAO.addMerchant(merchant);
-
-                // todo: create new user if it does not exist
-                User user = userDAO.getUser(userId);
-                if (user == null) {
-                    user = new User(userId);
-                    userDAO.addUser(user);
-                }
-
-                Transaction transaction = new Transaction(userId, amount, timestamp, merchantName);
-
-                transactionDAO.addTransaction(transaction);
-                return transaction;
-            } catch (IllegalArgumentException e) {
-                // todo: replace with logger
-                System.out.println("Error parsing transaction: " + e.getMessage());
-                return null;
-            } catch (Exception e) {
-                System.out.println("Error reading transaction: " + e.getMessage());
-                return null;
+        String line;
+        while ((line = getNextLine()) != null) {
+            long startNanos = System.nanoTime();
+            Transaction transaction = transactionIngestService.tryIngest(line);
+            batchEvent.ingestTime += System.nanoTime() - startNanos;
+            if (transaction == null) {
+                continue;
             }
-        } else {
-            bufferedReader.close();
-            return null;
+            ++batchEvent.transactionCount;
+            return transaction;
+        }
+        return null;
+    }
+
+    @Override
+    protected void beforeCheckpoint(long firstLine, long lastLine) {
+        long duplicateCount = transactionIngestService.getDuplicateCount();
+        batchEvent.lastLine = lastLine;
+        batchEvent.duplicateCount = (int) (duplicateCount - reportedDuplicateCount);
+        batchEvent.readTime = getReadNanos() - batchStartReadNanos;
+        batchEvent.commit();
+        if (duplicateCount > reportedDuplicateCount) {
+            LOGGER.info(String.format("Skipped %d duplicate transactions in lines %d to %d of %s", duplicateCount - reportedDuplicateCount, firstLine, lastLine, getFilePath()));
+            reportedDuplicateCount = duplicateCount;
         }
+        beginBatch(lastLine + 1);
+    }
+
+    private void beginBatch(long firstLine) {
+        batchEvent = new IngestionBatchEvent();
+        batchEvent.filePath = getFilePath();
+        batchEvent.firstLine = firstLine;
+        batchStartReadNanos = getReadNanos();
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import org.example.dao.TransactionDAO;
 import org.example.dao.UserDAO;
 import org.example.entity.Transaction;
 import org.example.entity.User;
+import org.example.event.MedianRefreshEvent;
 
 import java.time.LocalDateTime;
 import java.util.Comparator;
@@ -21,23 +22,35 @@ public class UserService {
     public UserService(UserDAO userDAO, TransactionDAO transactionDAO) {
         this.userDAO = userDAO;
         this.transactionDAO = transactionDAO;
-        this.timer = new Timer();
+        this.timer = new Timer(true);
     }
 
     /**
      * Starts a task that updates the median transaction amount for each user every hour.
+     * Each run is recorded as a {@link MedianRefreshEvent}.
+     * The task runs on the timer thread, so it only updates the users currently in memory and never reads spilled users back,
+     * and a failure is logged instead of cancelling the timer.
      */
     public void calculateMedianTransactionAmountForAllUser() {
         TimerTask task = new TimerTask() {
             @Override
             public void run() {
-                for (User user : userDAO.getUserList()) {
+                MedianRefreshEvent event = new MedianRefreshEvent();
+                event.begin();
+                List<User> users = userDAO.getUserList();
+                for (User user : users) {
                     LOGGER.info(String.format("Updating median for user: " + user.getUserId()));
-                    List<Transaction> previousTransactions = transactionDAO.getPreviousTransactionsForAUser(LocalDateTime.now().minusMonths(6), user.getUserId());
-                    if(!previousTransactions.isEmpty()) {
-                        calculateMedianTransactionAmount(user.getUserId(), previousTransactions);
+                    try {
+                        Double median = calculateMedianTransactionAmount(user.getUserId());
+                        if (median != null) {
+                            user.setMedianTransactionAmount(median);
+                        }
+                    } catch (RuntimeException e) {
+                        LOGGER.warning("Could not update median for user " + user.getUserId() + ": " + e);
                     }
                 }
+                event.userCount = users.size();
+                event.commit();
             }
         };
 
@@ -53,25 +66,42 @@ public class UserService {
     }
 
     /**
-     * Calculates the median transaction amount for a user based on their transactions in the last 6 months and
-     * appropriately update the user's median transaction amount in the UserDAO.
+     * Updates the median transaction amount for a single user based on their transactions in the last 6 months.
+     * The 6 months are counted back from the latest transaction read so far, so replaying an older feed behaves like reading it live.
+     * It goes through the UserDAO, so it must be called from the thread ingesting transactions.
      *
-     * @param userId       The ID of the user.
-     * @param transactions The list of transactions for the user in the last 6 months.
+     * @param userId The ID of the user.
      */
-    private void calculateMedianTransactionAmount(String userId, List<Transaction> transactions) {
+    public void updateMedianTransactionAmount(String userId) {
+        Double median = calculateMedianTransactionAmount(userId);
+        if (median != null) {
+            userDAO.setMedianTransactionAmount(userId, median);
+        }
+    }
+
+    /**
+     * Calculates the median transaction amount for a user based on their transactions in the last 6 months.
+     *
+     * @param userId The ID of the user.
+     * @return The median transaction amount, or null if the user has no transactions in the last 6 months.
+     */
+    private Double calculateMedianTransactionAmount(String userId) {
+        LocalDateTime latestTimestamp = transactionDAO.getLatestTimestamp();
+        if (latestTimestamp == null) {
+            return null;
+        }
+        List<Transaction> transactions = transactionDAO.getPreviousTransactionsForAUser(latestTimestamp.minusMonths(TransactionDAO.HISTORY_MONTHS), userId);
+        if (transactions.isEmpty()) {
+            return null;
+        }
         transactions.sort(Comparator.comparingDouble(Transaction::getAmount));
-        double median;
 
         int size = transactions.size();
         if (size % 2 == 0) {
             double middle1 = transactions.get(size / 2 - 1).getAmount();
             double middle2 = transactions.get(size / 2).getAmount();
-            median = (middle1 + middle2) / 2.0;
-        } else {
-            median = transactions.get(size / 2).getAmount();
+            return (middle1 + middle2) / 2.0;
         }
-
-        userDAO.setMedianTransactionAmount(userId, median);
+        return transactions.get(size / 2).getAmount();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package org.example.util;
+
+/**
+ * This class is a fixed size Bloom filter over strings.
+ * It may report a value it has never seen as present (at the configured false positive rate), but never misses a value it has seen.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions    The number of values the filter is sized for.
+     * @param falsePositiveRate     The false positive rate wanted once expectedInsertions values have been added.
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        long optimalBitCount = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1, (optimalBitCount + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * This method adds a value to the filter.
+     *
+     * @param value The value to add.
+     * @return true if the value was possibly added before, false if it is definitely new.
+     */
+    public boolean put(String value) {
+        return test(value, true);
+    }
+
+    /**
+     * This method checks if a value is in the filter, without adding it.
+     *
+     * @param value The value to look for.
+     * @return true if the value was possibly added before, false if it is definitely not in the filter.
+     */
+    public boolean mightContain(String value) {
+        return test(value, false);
+    }
+
+    private boolean test(String value, boolean add) {
+        long hash = Hashing.hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        boolean present = true;
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            if ((bits[word] & mask) == 0) {
+                if (!add) {
+                    return false;
+                }
+                present = false;
+                bits[word] |= mask;
+            }
+        }
+        return present;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class maps keys to partitions with consistent hashing.
+ * Every partition owns VIRTUAL_NODES points on a 64 bit ring and a key belongs to the partition owning the first point
+ * at or after the key's hash, so keys are spread evenly and adding a partition only moves the keys it takes over.
+ */
+public class ConsistentHashRing {
+    public static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param partitionCount The number of partitions, numbered from 0.
+     */
+    public ConsistentHashRing(int partitionCount) {
+        for (int partition = 0; partition < partitionCount; partition++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(Hashing.hash("partition-" + partition + "#" + node), partition);
+            }
+        }
+    }
+
+    /**
+     * This method finds the partition owning a key.
+     *
+     * @param key The key, e.g. a user ID.
+     * @return The partition number.
+     */
+    public int getPartition(String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(Hashing.hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+}
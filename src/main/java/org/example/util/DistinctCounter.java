@@ -0,0 +1,128 @@
+package org.example.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class counts distinct values with bounded memory.
+ * It keeps the hashes of the first EXACT_LIMIT values in a small array, which gives exact counts for light users,
+ * and upgrades to a HyperLogLog sketch once that limit is exceeded.
+ */
+public class DistinctCounter {
+    public static final int EXACT_LIMIT = 16;
+
+    private long[] exactHashes = new long[4];
+    private int exactSize;
+    private HyperLogLog hyperLogLog;
+
+    /**
+     * This method adds a hashed value to the counter.
+     *
+     * @param hash A well mixed 64 bit hash of the value, see {@link Hashing#hash(String)}.
+     */
+    public void add(long hash) {
+        if (hyperLogLog != null) {
+            hyperLogLog.add(hash);
+            return;
+        }
+        for (int i = 0; i < exactSize; i++) {
+            if (exactHashes[i] == hash) {
+                return;
+            }
+        }
+        if (exactSize == EXACT_LIMIT) {
+            upgrade();
+            hyperLogLog.add(hash);
+            return;
+        }
+        if (exactSize == exactHashes.length) {
+            exactHashes = Arrays.copyOf(exactHashes, Math.min(exactHashes.length * 2, EXACT_LIMIT));
+        }
+        exactHashes[exactSize++] = hash;
+    }
+
+    /**
+     * This method adds every value of another counter to this one.
+     *
+     * @param other The counter to merge.
+     */
+    public void merge(DistinctCounter other) {
+        if (other.hyperLogLog != null) {
+            if (hyperLogLog == null) {
+                upgrade();
+            }
+            hyperLogLog.merge(other.hyperLogLog);
+            return;
+        }
+        for (int i = 0; i < other.exactSize; i++) {
+            add(other.exactHashes[i]);
+        }
+    }
+
+    /**
+     * This method returns the number of distinct values added, exact below EXACT_LIMIT and estimated above it.
+     *
+     * @return The number of distinct values.
+     */
+    public long count() {
+        return hyperLogLog != null ? hyperLogLog.estimate() : exactSize;
+    }
+
+    /**
+     * This method removes every value from the counter and releases the sketch if one was allocated.
+     */
+    public void clear() {
+        exactSize = 0;
+        hyperLogLog = null;
+    }
+
+    /**
+     * This method writes the counter, either its exact hashes or its sketch.
+     *
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        if (hyperLogLog != null) {
+            output.writeByte(-1);
+            hyperLogLog.writeTo(output);
+            return;
+        }
+        output.writeByte(exactSize);
+        for (int i = 0; i < exactSize; i++) {
+            output.writeLong(exactHashes[i]);
+        }
+    }
+
+    /**
+     * This method reads a counter written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The counter.
+     * @throws IOException If there is an error reading.
+     */
+    public static DistinctCounter readFrom(DataInput input) throws IOException {
+        DistinctCounter distinctCounter = new DistinctCounter();
+        int size = input.readByte();
+        if (size < 0) {
+            distinctCounter.hyperLogLog = HyperLogLog.readFrom(input);
+            return distinctCounter;
+        }
+        distinctCounter.exactHashes = new long[Math.max(size, 4)];
+        for (int i = 0; i < size; i++) {
+            distinctCounter.exactHashes[i] = input.readLong();
+        }
+        distinctCounter.exactSize = size;
+        return distinctCounter;
+    }
+
+    private void upgrade() {
+        hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < exactSize; i++) {
+            hyperLogLog.add(exactHashes[i]);
+        }
+        exactSize = 0;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.util;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class detects values that were already seen, with memory bounded by time.
+ * Values are grouped into partitions by the day they belong to. The most recent partitions keep the exact set of values,
+ * where duplicates are most likely. Once a partition is no longer among them, its exact set is replaced by a Bloom filter
+ * sized for the values it held, which keeps growing if late values keep arriving, so its false positive rate stays bounded.
+ * Partitions beyond the retention are dropped.
+ */
+public class DuplicateFilter {
+    private final int expectedInsertionsPerPartition;
+    private final double falsePositiveRate;
+    private final int retainedPartitions;
+    private final int exactPartitions;
+    private final TreeMap<Long, Partition> partitions = new TreeMap<>();
+
+    /**
+     * @param expectedInsertionsPerPartition The minimum number of values a partition's Bloom filter is sized for.
+     * @param falsePositiveRate              The false positive rate of each Bloom filter.
+     * @param retainedPartitions             The number of most recent partitions kept at all.
+     * @param exactPartitions                The number of most recent partitions that keep their exact values instead of a Bloom filter.
+     */
+    public DuplicateFilter(int expectedInsertionsPerPartition, double falsePositiveRate, int retainedPartitions, int exactPartitions) {
+        this.expectedInsertionsPerPartition = expectedInsertionsPerPartition;
+        this.falsePositiveRate = falsePositiveRate;
+        this.retainedPartitions = retainedPartitions;
+        this.exactPartitions = exactPartitions;
+    }
+
+    /**
+     * This method adds a value to the given partition.
+     * Values belonging to partitions older than the retention cannot be checked and are always reported as new.
+     *
+     * @param value     The value to add.
+     * @param partition The partition of the value, e.g. its epoch day.
+     * @return true if the value is new, false if it was seen before.
+     */
+    public boolean add(String value, long partition) {
+        Partition current = partitions.get(partition);
+        if (current == null) {
+            if (partitions.size() >= retainedPartitions && partition < partitions.firstKey()) {
+                return true;
+            }
+            current = new Partition();
+            partitions.put(partition, current);
+            evict();
+        }
+
+        if (current.exactValues != null) {
+            return current.exactValues.add(value);
+        }
+        return !current.bloomFilter.put(value);
+    }
+
+    private void evict() {
+        while (partitions.size() > retainedPartitions) {
+            partitions.pollFirstEntry();
+        }
+        int index = partitions.size();
+        for (Map.Entry<Long, Partition> entry : partitions.entrySet()) {
+            Partition partition = entry.getValue();
+            if (index-- > exactPartitions && partition.exactValues != null) {
+                partition.bloomFilter = new ScalableBloomFilter(Math.max(partition.exactValues.size(), expectedInsertionsPerPartition), falsePositiveRate);
+                for (String value : partition.exactValues) {
+                    partition.bloomFilter.put(value);
+                }
+                partition.exactValues = null;
+            }
+        }
+    }
+
+    private static class Partition {
+        private Set<String> exactValues = new HashSet<>();
+        private ScalableBloomFilter bloomFilter;
+    }
+}
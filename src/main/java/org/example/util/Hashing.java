@@ -0,0 +1,44 @@
+package org.example.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class provides the hash function shared by the sketches in this package.
+ */
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * This method computes a 64 bit hash of a string.
+     * It uses FNV-1a over the UTF-8 bytes followed by a final mix, so all bits are evenly distributed.
+     *
+     * @param value The value to hash.
+     * @return The 64 bit hash.
+     */
+    public static long hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return hash(bytes, bytes.length);
+    }
+
+    /**
+     * This method computes a 64 bit hash of the first bytes of an array, like {@link #hash(String)}.
+     *
+     * @param bytes  The bytes to hash.
+     * @param length The number of bytes to hash, from the start of the array.
+     * @return The 64 bit hash.
+     */
+    public static long hash(byte[] bytes, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class is a small HyperLogLog sketch used to estimate the number of distinct values seen.
+ * It uses 2^PRECISION one byte registers, so its memory does not grow with the number of values added.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 7;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    /**
+     * This method adds a hashed value to the sketch.
+     * The lowest bits of the hash select the register, the remaining bits give the rank stored in it.
+     *
+     * @param hash A well mixed 64 bit hash of the value.
+     */
+    public void add(long hash) {
+        int index = (int) (hash & (REGISTER_COUNT - 1));
+        long remaining = hash >>> PRECISION;
+        int rank = Math.min(Long.numberOfTrailingZeros(remaining), 64 - PRECISION) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * This method merges another sketch into this one, giving the sketch of the union of both value sets.
+     *
+     * @param other The sketch to merge.
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * This method estimates the number of distinct values added to the sketch.
+     * Linear counting is used while many registers are still empty, since it is more accurate for small sets.
+     *
+     * @return The estimated number of distinct values.
+     */
+    public long estimate() {
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                ++emptyRegisters;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && emptyRegisters > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] getRegisters() {
+        return registers;
+    }
+
+    /**
+     * This method writes the registers of the sketch.
+     *
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.write(registers);
+    }
+
+    /**
+     * This method reads a sketch written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The sketch.
+     * @throws IOException If there is an error reading.
+     */
+    public static HyperLogLog readFrom(DataInput input) throws IOException {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        input.readFully(hyperLogLog.registers);
+        return hyperLogLog;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads a file line by line while keeping track of the byte offset and the number of the next line.
+ * {@link #readLine()} only returns lines terminated by a newline. A trailing partial line is held back until the rest of it is written,
+ * so the reader can follow a file that is still being appended and its offset always points at the start of a line.
+ * When the file is complete, {@link #readLastLine()} also returns a final line that has no newline.
+ */
+public class OffsetLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteArrayOutputStream pendingLine = new ByteArrayOutputStream();
+    private long offset;
+    private long lineNumber;
+
+    /**
+     * @param filePath   The file to read.
+     * @param offset     The byte offset to start reading from; it must be the start of a line.
+     * @param lineNumber The number of the line starting at that offset.
+     * @throws IOException If the file cannot be opened.
+     */
+    public OffsetLineReader(String filePath, long offset, long lineNumber) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        channel.position(offset);
+        buffer.flip();
+    }
+
+    /**
+     * This method reads the next complete line.
+     *
+     * @return The line without its line terminator, or null if no complete line is available yet.
+     * @throws IOException If there is an error reading the file.
+     */
+    public String readLine() throws IOException {
+        while (true) {
+            int start = buffer.position();
+            for (int i = start; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    pendingLine.write(buffer.array(), start, i - start);
+                    buffer.position(i + 1);
+                    return completeLine(1);
+                }
+            }
+            pendingLine.write(buffer.array(), start, buffer.limit() - start);
+            buffer.clear();
+            if (channel.size() < channel.position()) {
+                throw new IOException("File was truncated below offset " + channel.position());
+            }
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read <= 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * This method reads the next line of a file that is not being appended anymore.
+     * Unlike {@link #readLine()}, it returns a final line that has no newline instead of holding it back.
+     *
+     * @return The line without its line terminator, or null at the end of the file.
+     * @throws IOException If there is an error reading the file.
+     */
+    public String readLastLine() throws IOException {
+        String line = readLine();
+        if (line != null || pendingLine.size() == 0) {
+            return line;
+        }
+        return completeLine(0);
+    }
+
+    private String completeLine(int terminatorLength) {
+        byte[] bytes = pendingLine.toByteArray();
+        pendingLine.reset();
+        offset += bytes.length + terminatorLength;
+        ++lineNumber;
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            --length;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method reads the first bytes of the file without moving the read position.
+     *
+     * @param prefix The array to fill from the start of the file.
+     * @return The number of bytes read, less than the array length if the file is shorter.
+     * @throws IOException If there is an error reading the file.
+     */
+    public int readPrefix(byte[] prefix) throws IOException {
+        ByteBuffer prefixBuffer = ByteBuffer.wrap(prefix);
+        while (prefixBuffer.hasRemaining() && channel.read(prefixBuffer, prefixBuffer.position()) > 0) {
+            // The buffer position is both where to write and the file position to read from
+        }
+        return prefixBuffer.position();
+    }
+
+    /**
+     * @return The byte offset of the start of the next line to be returned.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The number of lines returned so far, counting from the start of the file.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
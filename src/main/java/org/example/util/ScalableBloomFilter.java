@@ -0,0 +1,50 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a Bloom filter over strings that grows as values are added.
+ * It chains fixed size {@link BloomFilter}s: once the last one holds the values it was sized for, a new one twice as large
+ * and with half the false positive rate is added, so the overall false positive rate stays close to the configured one
+ * however many values are added.
+ */
+public class ScalableBloomFilter {
+    private final List<BloomFilter> filters = new ArrayList<>();
+    private int capacity;
+    private double falsePositiveRate;
+    private int size;
+
+    /**
+     * @param initialCapacity   The number of values the first filter is sized for.
+     * @param falsePositiveRate The false positive rate wanted over all the filters.
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        this.capacity = Math.max(1, initialCapacity);
+        this.falsePositiveRate = falsePositiveRate / 2;
+        filters.add(new BloomFilter(capacity, this.falsePositiveRate));
+    }
+
+    /**
+     * This method adds a value to the filter.
+     *
+     * @param value The value to add.
+     * @return true if the value was possibly added before, false if it is definitely new.
+     */
+    public boolean put(String value) {
+        for (BloomFilter filter : filters) {
+            if (filter.mightContain(value)) {
+                return true;
+            }
+        }
+        if (size == capacity) {
+            capacity = capacity > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : capacity * 2;
+            falsePositiveRate /= 2;
+            filters.add(new BloomFilter(capacity, falsePositiveRate));
+            size = 0;
+        }
+        filters.get(filters.size() - 1).put(value);
+        ++size;
+        return false;
+    }
+}
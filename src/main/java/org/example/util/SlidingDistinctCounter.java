@@ -0,0 +1,106 @@
+package org.example.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class counts distinct values over a sliding time window.
+ * The window is split into a fixed number of buckets, each holding a {@link DistinctCounter},
+ * so its memory stays constant however many values are added. Buckets are reused once they fall out of the window.
+ */
+public class SlidingDistinctCounter {
+    private final long bucketWidthSeconds;
+    private final long[] bucketIndexes;
+    private final DistinctCounter[] buckets;
+
+    /**
+     * @param bucketWidthSeconds The width of a bucket in seconds.
+     * @param bucketCount        The number of buckets; the window length is bucketWidthSeconds * bucketCount.
+     */
+    public SlidingDistinctCounter(long bucketWidthSeconds, int bucketCount) {
+        this.bucketWidthSeconds = bucketWidthSeconds;
+        this.bucketIndexes = new long[bucketCount];
+        this.buckets = new DistinctCounter[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bucketIndexes[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * This method adds a hashed value seen at the given time.
+     * Values older than every bucket currently held are ignored, since they are already outside the window.
+     *
+     * @param hash        A well mixed 64 bit hash of the value.
+     * @param epochSecond The time the value was seen.
+     */
+    public void add(long hash, long epochSecond) {
+        long bucketIndex = Math.floorDiv(epochSecond, bucketWidthSeconds);
+        int slot = (int) Math.floorMod(bucketIndex, (long) buckets.length);
+        if (bucketIndexes[slot] > bucketIndex) {
+            return;
+        }
+        if (bucketIndexes[slot] < bucketIndex) {
+            bucketIndexes[slot] = bucketIndex;
+            if (buckets[slot] == null) {
+                buckets[slot] = new DistinctCounter();
+            } else {
+                buckets[slot].clear();
+            }
+        }
+        buckets[slot].add(hash);
+    }
+
+    /**
+     * This method counts the distinct values seen in the window ending at the given time.
+     *
+     * @param epochSecond The end of the window.
+     * @return The number of distinct values in the window, exact for small sets and estimated for large ones.
+     */
+    public long count(long epochSecond) {
+        long currentIndex = Math.floorDiv(epochSecond, bucketWidthSeconds);
+        DistinctCounter union = new DistinctCounter();
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null && bucketIndexes[i] <= currentIndex && bucketIndexes[i] > currentIndex - buckets.length) {
+                union.merge(buckets[i]);
+            }
+        }
+        return union.count();
+    }
+
+    /**
+     * This method writes the window and the buckets it holds.
+     *
+     * @param output The output to write to.
+     * @throws IOException If there is an error writing.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeLong(bucketWidthSeconds);
+        output.writeInt(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            output.writeBoolean(buckets[i] != null);
+            if (buckets[i] != null) {
+                output.writeLong(bucketIndexes[i]);
+                buckets[i].writeTo(output);
+            }
+        }
+    }
+
+    /**
+     * This method reads a window written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return The window.
+     * @throws IOException If there is an error reading.
+     */
+    public static SlidingDistinctCounter readFrom(DataInput input) throws IOException {
+        SlidingDistinctCounter slidingDistinctCounter = new SlidingDistinctCounter(input.readLong(), input.readInt());
+        for (int i = 0; i < slidingDistinctCounter.buckets.length; i++) {
+            if (input.readBoolean()) {
+                slidingDistinctCounter.bucketIndexes[i] = input.readLong();
+                slidingDistinctCounter.buckets[i] = DistinctCounter.readFrom(input);
+            }
+        }
+        return slidingDistinctCounter;
+    }
+}
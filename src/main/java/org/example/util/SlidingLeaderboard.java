@@ -0,0 +1,156 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * This class keeps the keys with the most alerts, and with the highest alert rate, over a sliding time window.
+ * Counts are kept per key and per time bucket; when a bucket falls out of the window its counts are subtracted again.
+ * Both rankings are sorted sets that are updated on every event, so recording an event costs O(log N)
+ * (plus the amortized cost of expiring it later) and reading the top N costs O(N).
+ */
+public class SlidingLeaderboard {
+    private static final Comparator<Entry> BY_ALERT_COUNT = Comparator
+            .comparingLong((Entry entry) -> -entry.alerts)
+            .thenComparing(entry -> entry.key);
+    private static final Comparator<Entry> BY_ALERT_RATE = Comparator
+            .comparingDouble((Entry entry) -> -entry.rate())
+            .thenComparingLong(entry -> -entry.alerts)
+            .thenComparing(entry -> entry.key);
+
+    private final long bucketWidthSeconds;
+    private final int minTransactionsForRate;
+    private final long[] bucketIndexes;
+    private final List<Map<String, long[]>> buckets;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byAlertCount = new TreeSet<>(BY_ALERT_COUNT);
+    private final TreeSet<Entry> byAlertRate = new TreeSet<>(BY_ALERT_RATE);
+    private long newestBucketIndex = Long.MIN_VALUE;
+
+    /**
+     * @param bucketWidthSeconds     The width of a bucket in seconds.
+     * @param bucketCount            The number of buckets; the window length is bucketWidthSeconds * bucketCount.
+     * @param minTransactionsForRate The number of transactions a key needs in the window to be ranked by alert rate.
+     */
+    public SlidingLeaderboard(long bucketWidthSeconds, int bucketCount, int minTransactionsForRate) {
+        this.bucketWidthSeconds = bucketWidthSeconds;
+        this.minTransactionsForRate = minTransactionsForRate;
+        this.bucketIndexes = new long[bucketCount];
+        this.buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            bucketIndexes[i] = Long.MIN_VALUE;
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * This method records a transaction for a key, and whether it raised an alert.
+     * Events older than the window are ignored.
+     *
+     * @param key         The user ID or merchant name.
+     * @param alert       Whether the transaction raised an alert.
+     * @param epochSecond The time of the transaction.
+     */
+    public synchronized void record(String key, boolean alert, long epochSecond) {
+        long bucketIndex = Math.floorDiv(epochSecond, bucketWidthSeconds);
+        if (bucketIndex > newestBucketIndex) {
+            advance(bucketIndex);
+        }
+        if (bucketIndex <= newestBucketIndex - bucketIndexes.length) {
+            return;
+        }
+        int slot = (int) Math.floorMod(bucketIndex, (long) bucketIndexes.length);
+        bucketIndexes[slot] = bucketIndex;
+        long[] counts = buckets.get(slot).computeIfAbsent(key, k -> new long[2]);
+        counts[0] += alert ? 1 : 0;
+        counts[1] += 1;
+        update(key, alert ? 1 : 0, 1);
+    }
+
+    /**
+     * This method returns the keys with the most alerts in the window.
+     *
+     * @param n The number of keys to return.
+     * @return Up to n entries formatted as "key: alerts/transactions", highest first.
+     */
+    public synchronized List<String> topByAlertCount(int n) {
+        return top(byAlertCount, n);
+    }
+
+    /**
+     * This method returns the keys with the highest ratio of alerts to transactions in the window.
+     * Only keys with at least minTransactionsForRate transactions are ranked, so a single alert does not top the list.
+     *
+     * @param n The number of keys to return.
+     * @return Up to n entries formatted as "key: alerts/transactions", highest first.
+     */
+    public synchronized List<String> topByAlertRate(int n) {
+        return top(byAlertRate, n);
+    }
+
+    private static List<String> top(TreeSet<Entry> ranking, int n) {
+        List<String> top = new ArrayList<>(n);
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && top.size() < n) {
+            Entry entry = iterator.next();
+            top.add(entry.key + ": " + entry.alerts + "/" + entry.transactions);
+        }
+        return top;
+    }
+
+    private void advance(long bucketIndex) {
+        for (int slot = 0; slot < bucketIndexes.length; slot++) {
+            if (bucketIndexes[slot] == Long.MIN_VALUE || bucketIndexes[slot] > bucketIndex - bucketIndexes.length) {
+                continue;
+            }
+            for (Map.Entry<String, long[]> counts : buckets.get(slot).entrySet()) {
+                update(counts.getKey(), -counts.getValue()[0], -counts.getValue()[1]);
+            }
+            buckets.get(slot).clear();
+            bucketIndexes[slot] = Long.MIN_VALUE;
+        }
+        newestBucketIndex = bucketIndex;
+    }
+
+    private void update(String key, long alerts, long transactions) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+        } else {
+            byAlertCount.remove(entry);
+            byAlertRate.remove(entry);
+        }
+        entry.alerts += alerts;
+        entry.transactions += transactions;
+        if (entry.transactions == 0) {
+            entries.remove(key);
+            return;
+        }
+        if (entry.alerts > 0) {
+            byAlertCount.add(entry);
+            if (entry.transactions >= minTransactionsForRate) {
+                byAlertRate.add(entry);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private long alerts;
+        private long transactions;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        double rate() {
+            return (double) alerts / transactions;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColdUserStoreTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * This test checks if users whose IDs have the same hash are stored side by side instead of overwriting each other.
+     */
+    @Test
+    public void hashCollisionTest() throws IOException {
+        try (ColdUserStore coldUserStore = new ColdUserStore(tempDir.resolve("users.spill").toString()) {
+            @Override
+            long key(String userId) {
+                return 42;
+            }
+        }) {
+            for (int i = 0; i < 100; i++) {
+                coldUserStore.put("user" + i, ("state of user" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            coldUserStore.put("user7", "new state of user7, longer than its old state".getBytes(StandardCharsets.UTF_8));
+            assertEquals(100, coldUserStore.size());
+            for (int i = 0; i < 100; i++) {
+                String expected = i == 7 ? "new state of user7, longer than its old state" : "state of user" + i;
+                assertEquals(expected, new String(coldUserStore.get("user" + i), StandardCharsets.UTF_8));
+            }
+            assertNull(coldUserStore.get("user100"));
+        }
+    }
+
+    /**
+     * This test checks if the space of records that outgrew their capacity is reused, so the file does not grow with the number of spills.
+     */
+    @Test
+    public void freeRecordReuseTest() throws IOException {
+        Random random = new Random(42);
+        byte[][] records = new byte[200][];
+        try (ColdUserStore coldUserStore = new ColdUserStore(tempDir.resolve("users.spill").toString())) {
+            for (int round = 0; round < 20_000; round++) {
+                int user = random.nextInt(records.length);
+                records[user] = new byte[50 + random.nextInt(5000)];
+                random.nextBytes(records[user]);
+                coldUserStore.put("user" + user, records[user]);
+            }
+            assertTrue(coldUserStore.getUsedBytes() < 5_000_000, coldUserStore.getUsedBytes() + " bytes used");
+            for (int user = 0; user < records.length; user++) {
+                assertTrue(Arrays.equals(records[user], coldUserStore.get("user" + user)));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.dao;
+
+import org.example.entity.Transaction;
+import org.example.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserDAOTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * This test checks if users evicted from memory are spilled to the cold store, with their transaction history, and read back with their state intact.
+     */
+    @Test
+    public void spillAndFaultInTest() throws IOException {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 14, 10, 0);
+        try (ColdUserStore coldUserStore = new ColdUserStore(tempDir.resolve("users.spill").toString())) {
+            TransactionDAO transactionDAO = new TransactionDAO();
+            UserDAO userDAO = new UserDAO(10, coldUserStore, transactionDAO);
+            for (int i = 0; i < 5000; i++) {
+                User user = new User("user" + i);
+                userDAO.addUser(user);
+                userDAO.setMedianTransactionAmount(user.getUserId(), (double) i);
+                transactionDAO.addTransaction(new Transaction(user.getUserId(), (double) i, now.minusSeconds(i % 7), "Store " + i));
+                for (int j = 0; j <= i % 40; j++) {
+                    user.addMerchantVisit("Store " + j, now.minusMinutes(j));
+                }
+            }
+            assertEquals(10, userDAO.getUserList().size());
+            assertEquals(4990, coldUserStore.size());
+            assertTrue(transactionDAO.getPreviousTransactionsForAUser(now.minusDays(1), "user0").isEmpty());
+
+            long epochSecond = now.toEpochSecond(ZoneOffset.UTC);
+            for (int i = 0; i < 5000; i += 7) {
+                User user = userDAO.getUser("user" + i);
+                assertEquals("user" + i, user.getUserId());
+                assertEquals((double) i, user.getMedianTransactionAmount());
+                List<Transaction> transactions = transactionDAO.getPreviousTransactionsForAUser(now.minusDays(1), "user" + i);
+                assertEquals(1, transactions.size());
+                assertEquals((double) i, transactions.get(0).getAmount());
+                assertEquals(now.minusSeconds(i % 7), transactions.get(0).getTimestamp());
+                assertEquals("Store " + i, transactions.get(0).getMerchantName());
+                if (i % 40 < 16) {
+                    assertEquals(i % 40 + 1, user.getMerchantsInLastDay().count(epochSecond));
+                }
+            }
+            assertNull(userDAO.getUser("unknown"));
+
+            User user = userDAO.getUser("user1");
+            for (int j = 0; j < 500; j++) {
+                user.addMerchantVisit("Other Store " + j, now);
+            }
+            for (int i = 0; i < 100; i++) {
+                userDAO.getUser("user" + (i + 100));
+            }
+            assertTrue(userDAO.getUser("user1").getMerchantsInLastDay().count(epochSecond) > 400);
+            assertEquals(10, userDAO.getUserList().size());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.service;
+
+import org.example.GuardianWatchApp;
+import org.example.dao.ColdUserStore;
+import org.example.dao.MerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.FraudFlagger;
+import org.example.entity.Transaction;
+import org.example.entity.User;
+import org.example.util.DistinctCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This test runs randomly generated transaction streams through the production engine and through {@link ReferenceFraudDetector},
+ * and fails with a minimized repro when their flags differ, so optimizations cannot silently change alerts.
+ * Streams include late rows, some older than the distinct merchant windows, so the windows must drop and forget visits like the reference.
+ * Regular streams use at most 12 merchants, so the distinct merchant sketches stay exact and must match the reference exactly;
+ * high cardinality streams use hundreds, so the sketches switch to HyperLogLog and their counts are compared within a tolerance.
+ * The engine refreshes the medians before each transaction, while the application refreshes them on a timer, so the harness
+ * does not cover flags that differ only because a median was stale.
+ */
+public class FraudDetectionDifferentialTest {
+    public static final Logger LOGGER = Logger.getLogger(GuardianWatchApp.class.getName());
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int SEEDS = 30;
+    private static final int STREAM_LENGTH = 300;
+    private static final int MERCHANTS = 12;
+    private static final int HIGH_CARDINALITY_MERCHANTS = 500;
+    private static final double DISTINCT_COUNT_TOLERANCE = 0.3;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * This test checks if the production engine, with all users in memory, flags exactly like the reference.
+     */
+    @Test
+    public void inMemoryEngineMatchesReferenceTest() throws IOException {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            assertNoMismatch(generate(seed, STREAM_LENGTH, MERCHANTS), 0);
+        }
+    }
+
+    /**
+     * This test checks if the production engine still flags exactly like the reference when most users are spilled to disk.
+     */
+    @Test
+    public void spillingEngineMatchesReferenceTest() throws IOException {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            assertNoMismatch(generate(seed, STREAM_LENGTH, MERCHANTS), 2);
+        }
+    }
+
+    /**
+     * This test checks if the distinct merchant counts stay within the tolerance of the exact counts once the sketches switch to HyperLogLog,
+     * and if the engine still flags too many distinct merchants like the reference.
+     * Only that rule is compared: the merchant slots of the spending profile are also approximate with this many merchants.
+     */
+    @Test
+    public void highCardinalityEngineMatchesReferenceTest() throws IOException {
+        int estimatedCount = 0;
+        for (int seed = 0; seed < SEEDS; seed++) {
+            List<String> lines = generate(seed, STREAM_LENGTH, HIGH_CARDINALITY_MERCHANTS);
+            ReferenceFraudDetector reference = new ReferenceFraudDetector();
+            Engine engine = new Engine(0);
+            for (String line : lines) {
+                Transaction transaction = parse(line);
+                List<FraudFlagger> expectedFlaggers = reference.process(transaction);
+                List<FraudFlagger> actualFlaggers = engine.process(line);
+                if (expectedFlaggers == null) {
+                    continue;
+                }
+                assertEquals(expectedFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT), actualFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT),
+                        "too many distinct merchants for " + line);
+                long[] actual = engine.distinctMerchantCounts(transaction);
+                int[] expected = {reference.distinctMerchantsInLastHour(transaction), reference.distinctMerchantsInLastDay(transaction)};
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], actual[i], Math.max(0.5, expected[i] * DISTINCT_COUNT_TOLERANCE), "distinct merchants for " + line);
+                    if (expected[i] > DistinctCounter.EXACT_LIMIT) {
+                        ++estimatedCount;
+                    }
+                }
+            }
+        }
+        assertTrue(estimatedCount > 0, "no window exceeded the exact limit of the sketches");
+    }
+
+    /**
+     * This test compares the throughput of the production engine and the reference on the same stream.
+     * It only logs the numbers; it does not fail on them.
+     */
+    @Test
+    public void throughputTest() throws IOException {
+        List<String> lines = generate(42, 4000, MERCHANTS);
+
+        long start = System.nanoTime();
+        ReferenceFraudDetector reference = new ReferenceFraudDetector();
+        for (String line : lines) {
+            reference.process(parse(line));
+        }
+        long referenceNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Engine engine = new Engine(0);
+        for (String line : lines) {
+            engine.process(line);
+        }
+        long engineNanos = System.nanoTime() - start;
+
+        LOGGER.info(String.format("Throughput over %d transactions: reference %.0f tx/s, engine %.0f tx/s",
+                lines.size(), lines.size() / (referenceNanos / 1e9), lines.size() / (engineNanos / 1e9)));
+    }
+
+    private void assertNoMismatch(List<String> lines, int maxHotUsers) throws IOException {
+        String mismatch = findMismatch(lines, maxHotUsers);
+        if (mismatch == null) {
+            return;
+        }
+        List<String> minimized = minimize(lines, maxHotUsers);
+        fail("Engine and reference disagree: " + findMismatch(minimized, maxHotUsers)
+                + "\nThe engine refreshes medians before each transaction, unlike the timer of the application."
+                + "\nMinimized repro (" + minimized.size() + " of " + lines.size() + " transactions):\n" + String.join("\n", minimized));
+    }
+
+    /**
+     * Runs both implementations over the stream and describes the first transaction on which they disagree.
+     *
+     * @return The description of the mismatch, or null if both agree on every transaction.
+     */
+    private String findMismatch(List<String> lines, int maxHotUsers) throws IOException {
+        ReferenceFraudDetector reference = new ReferenceFraudDetector();
+        Engine engine = new Engine(maxHotUsers);
+        for (int i = 0; i < lines.size(); i++) {
+            List<FraudFlagger> expected = reference.process(parse(lines.get(i)));
+            List<FraudFlagger> actual = engine.process(lines.get(i));
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                return String.format("transaction %d [%s]: reference %s, engine %s", i, lines.get(i), expected, actual);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes transactions one at a time, keeping each removal that still leaves a mismatch, until no single removal does.
+     */
+    private List<String> minimize(List<String> lines, int maxHotUsers) throws IOException {
+        List<String> minimized = new ArrayList<>(lines);
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+            for (int i = minimized.size() - 1; i >= 0; i--) {
+                List<String> candidate = new ArrayList<>(minimized);
+                candidate.remove(i);
+                if (findMismatch(candidate, maxHotUsers) != null) {
+                    minimized = candidate;
+                    removed = true;
+                }
+            }
+        }
+        return minimized;
+    }
+
+    /**
+     * Generates a stream of CSV rows mostly in time order, mixing bursts, spread out activity, odd hours, amount spikes, re-delivered rows
+     * and late rows, some of them more than a day late.
+     */
+    private static List<String> generate(long seed, int length, int maxMerchants) {
+        Random random = new Random(seed);
+        int users = 2 + random.nextInt(8);
+        int merchants = 2 + random.nextInt(maxMerchants - 1);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 14, random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        List<String> lines = new ArrayList<>();
+        while (lines.size() < length) {
+            if (!lines.isEmpty() && random.nextInt(20) == 0) {
+                lines.add(lines.get(random.nextInt(lines.size())));
+                continue;
+            }
+            LocalDateTime rowTimestamp = timestamp;
+            switch (random.nextInt(5)) {
+                case 0:
+                    timestamp = timestamp.plusSeconds(random.nextInt(20));
+                    break;
+                case 1:
+                    timestamp = timestamp.plusMinutes(random.nextInt(15));
+                    break;
+                case 2:
+                    timestamp = timestamp.plusHours(random.nextInt(4));
+                    break;
+                case 3:
+                    if (random.nextInt(3) == 0) {
+                        rowTimestamp = timestamp.minusMinutes(random.nextInt(30 * 60));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            double amount = random.nextInt(10) == 0 ? 1000 + random.nextInt(9000) : 5 + random.nextInt(200);
+            lines.add(String.format(Locale.ROOT, "user%d,%.2f,%s,Store %d",
+                    random.nextInt(users), amount + random.nextInt(100) / 100.0, rowTimestamp.format(FORMATTER), random.nextInt(merchants)));
+        }
+        return lines;
+    }
+
+    private static Transaction parse(String line) {
+        String[] values = line.split(",");
+        return new Transaction(values[0], Double.parseDouble(values[1]), LocalDateTime.parse(values[2], FORMATTER), values[3]);
+    }
+
+    /**
+     * The production pipeline: ingestion, median refresh, detection and merchant fraudulent counts, as wired by the application.
+     * The median is refreshed before each transaction instead of by the timer, so the run is deterministic;
+     * this diverges from the application, where a transaction can be checked against a median up to a second old.
+     */
+    private class Engine {
+        private final MerchantDAO merchantDAO = new MerchantDAO();
+        private final UserDAO userDAO;
+        private final TransactionIngestService transactionIngestService;
+        private final UserService userService;
+        private final FraudDetectionService fraudDetectionService;
+
+        Engine(int maxHotUsers) throws IOException {
+            TransactionDAO transactionDAO = new TransactionDAO();
+            userDAO = maxHotUsers > 0
+                    ? new UserDAO(maxHotUsers, new ColdUserStore(tempDir.resolve("users.spill").toString()), transactionDAO)
+                    : new UserDAO();
+            transactionIngestService = new TransactionIngestService(userDAO, merchantDAO, transactionDAO);
+            userService = new UserService(userDAO, transactionDAO);
+            fraudDetectionService = new FraudDetectionService(userDAO, merchantDAO, transactionDAO);
+        }
+
+        List<FraudFlagger> process(String line) {
+            Transaction transaction = transactionIngestService.ingest(line);
+            if (transaction == null) {
+                return null;
+            }
+            userService.updateMedianTransactionAmount(transaction.getUserId());
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            if (!fraudFlaggers.isEmpty()) {
+                merchantDAO.setFraudulentCount(transaction.getMerchantName());
+            }
+            return fraudFlaggers;
+        }
+
+        /**
+         * @return The distinct merchant counts of the user in the hour and day windows ending at the transaction.
+         */
+        long[] distinctMerchantCounts(Transaction transaction) {
+            User user = userDAO.getUser(transaction.getUserId());
+            long epochSecond = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            return new long[]{user.getMerchantsInLastHour().count(epochSecond), user.getMerchantsInLastDay().count(epochSecond)};
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -242,4 +243,103 @@ public class FraudDetectionServiceTest {
             assertFalse(fraudFlaggers.contains(FraudFlagger.TOO_MANY_TRANSACTION_WITH_SAME_MERCHANT));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * This test checks if the FraudDetectionService correctly identifies users transacting with many distinct merchants as fraudulent.
+     */
+    @Test
+    public void tooManyDistinctMerchantTest() {
+        LocalDateTime now = LocalDateTime.now();
+        {
+            User user = new User("user1");
+            user.setMedianTransactionAmount(100.0);
+            for (int i = 0; i < 5; i++) {
+                user.addMerchantVisit("Store " + i, now.minusMinutes(i));
+            }
+            when(userDAO.getUser("user1")).thenReturn(user);
+            Transaction transaction = new Transaction("user1", 100.0, now, "Store 0");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            LOGGER.info(String.format(fraudFlaggers.toString()));
+            assertTrue(fraudFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT));
+        }
+        {
+            User user = new User("user1");
+            user.setMedianTransactionAmount(100.0);
+            for (int i = 0; i < 20; i++) {
+                user.addMerchantVisit("Store " + (i % 3), now.minusMinutes(i));
+            }
+            when(userDAO.getUser("user1")).thenReturn(user);
+            Transaction transaction = new Transaction("user1", 100.0, now, "Store 0");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            assertFalse(fraudFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT));
+        }
+        {
+            User user = new User("user1");
+            user.setMedianTransactionAmount(100.0);
+            for (int i = 0; i < 500; i++) {
+                user.addMerchantVisit("Store " + i, now.minusDays(2).plusSeconds(i));
+            }
+            user.addMerchantVisit("Store 0", now);
+            when(userDAO.getUser("user1")).thenReturn(user);
+            Transaction transaction = new Transaction("user1", 100.0, now, "Store 0");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            assertFalse(fraudFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT));
+        }
+        {
+            User user = new User("user1");
+            user.setMedianTransactionAmount(100.0);
+            for (int i = 0; i < 500; i++) {
+                user.addMerchantVisit("Store " + i, now.minusHours(20).plusSeconds(i));
+            }
+            when(userDAO.getUser("user1")).thenReturn(user);
+            long distinctMerchantCount = user.getMerchantsInLastDay().count(now.toEpochSecond(ZoneOffset.UTC));
+            assertTrue(Math.abs(distinctMerchantCount - 500) < 100);
+            Transaction transaction = new Transaction("user1", 100.0, now, "Store 0");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            assertTrue(fraudFlaggers.contains(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT));
+        }
+    }
+
+    /**
+     * This test checks if, once a user has a spending profile, the amount and time rules follow the user's own habits,
+     * and if the amount rule still only flags amounts outside the threshold band.
+     */
+    @Test
+    public void spendingProfileTest() {
+        User user = new User("user1");
+        user.setMedianTransactionAmount(100.0);
+        LocalDateTime monday = LocalDateTime.of(2024, 3, 11, 3, 0);
+        for (int i = 0; i < 20; i++) {
+            // A night shift worker spending around 100 at Store A, every Monday at 3 AM
+            user.getSpendingProfile().add(new Transaction("user1", 80.0 + i, monday.minusWeeks(i), "Store A"));
+        }
+        when(userDAO.getUser("user1")).thenReturn(user);
+        {
+            Transaction transaction = new Transaction("user1", 90.0, monday.plusMinutes(30), "Store A");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            assertFalse(fraudFlaggers.contains(FraudFlagger.ODD_TIME_TRANSACTION));
+            assertFalse(fraudFlaggers.contains(FraudFlagger.HIGH_AMOUNT_TRANSACTION));
+            assertFalse(fraudFlaggers.contains(FraudFlagger.UNUSUAL_SPENDING_PATTERN));
+        }
+        {
+            Transaction transaction = new Transaction("user1", 90.0, monday.withHour(14), "Store A");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            LOGGER.info(String.format(fraudFlaggers.toString()));
+            assertTrue(fraudFlaggers.contains(FraudFlagger.ODD_TIME_TRANSACTION));
+            assertFalse(fraudFlaggers.contains(FraudFlagger.UNUSUAL_SPENDING_PATTERN));
+        }
+        {
+            Transaction transaction = new Transaction("user1", 600.0, monday.plusDays(3).withHour(14), "Store B");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            LOGGER.info(String.format(fraudFlaggers.toString()));
+            assertFalse(fraudFlaggers.contains(FraudFlagger.HIGH_AMOUNT_TRANSACTION));
+            assertTrue(fraudFlaggers.contains(FraudFlagger.UNUSUAL_SPENDING_PATTERN));
+        }
+        {
+            Transaction transaction = new Transaction("user1", 1500.0, monday.plusDays(3).withHour(3), "Store A");
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            assertTrue(fraudFlaggers.contains(FraudFlagger.HIGH_AMOUNT_TRANSACTION));
+        }
+        assertEquals(24, user.getSpendingProfile().getTransactionCount());
+    }
+}
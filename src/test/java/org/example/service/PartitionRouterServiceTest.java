@@ -0,0 +1,123 @@
+package org.example.service;
+
+import org.example.dao.CheckpointDAO;
+import org.example.dao.PartitionMerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionRouterServiceTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * This test checks if the router sends all the transactions of a user to the same partition,
+     * and if merchant fraudulent counts raised in the partitions are aggregated by the router.
+     */
+    @Test
+    public void routeAndAggregateTest() throws Exception {
+        StringBuilder csv = new StringBuilder("User ID,Amount,Timestamp,Merchant Name\n");
+        Map<String, Integer> expectedCounts = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            String merchantName = "Store " + (i % 4);
+            csv.append(String.format("user%d,%d.00,2024-03-14 10:%02d:%02d,%s%n", i % 25, 10 + i, i / 60, i % 60, merchantName));
+            expectedCounts.merge(merchantName, 1, Integer::sum);
+        }
+        Path csvPath = tempDir.resolve("transactions.csv");
+        Files.write(csvPath, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<Set<String>> usersPerPartition = new ArrayList<>();
+        List<PartitionWorkerService> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int partition = 0; partition < 3; partition++) {
+            PartitionMerchantDAO merchantDAO = new PartitionMerchantDAO();
+            PartitionWorkerService worker = new PartitionWorkerService(0, new UserDAO(), merchantDAO, new TransactionDAO());
+            Set<String> users = new HashSet<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.accept();
+                    Transaction transaction;
+                    while ((transaction = worker.getNextTransaction()) != null) {
+                        users.add(transaction.getUserId());
+                        merchantDAO.setFraudulentCount(transaction.getMerchantName());
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            workers.add(worker);
+            threads.add(thread);
+            usersPerPartition.add(users);
+        }
+
+        Map<String, Integer> globalFraudulentCounts = new PartitionRouterService(
+                Arrays.asList(workers.get(0).getPort(), workers.get(1).getPort(), workers.get(2).getPort()), csvPath.toString()).route();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(expectedCounts, globalFraudulentCounts);
+        Set<String> allUsers = new HashSet<>();
+        for (Set<String> users : usersPerPartition) {
+            assertFalse(users.isEmpty());
+            for (String user : users) {
+                assertTrue(allUsers.add(user), user + " was routed to more than one partition");
+            }
+        }
+        assertEquals(25, allUsers.size());
+    }
+
+    /**
+     * This test checks if a restarted router resumes from its checkpoint instead of re-sending the whole file.
+     */
+    @Test
+    public void resumeFromCheckpointTest() throws Exception {
+        Path csvPath = tempDir.resolve("transactions.csv");
+        Files.write(csvPath, ("User ID,Amount,Timestamp,Merchant Name\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "not a transaction\n"
+                + "user2,75.20,2024-03-14 12:45:00,Store B\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("user1", "user2"), routeToOnePartition(csvPath));
+
+        Files.write(csvPath, "user3,150.00,2024-03-14 15:20:00,Store C\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(Arrays.asList("user3"), routeToOnePartition(csvPath));
+    }
+
+    private List<String> routeToOnePartition(Path csvPath) throws Exception {
+        PartitionWorkerService worker = new PartitionWorkerService(0, new UserDAO(), new PartitionMerchantDAO(), new TransactionDAO());
+        List<String> users = new ArrayList<>();
+        Thread thread = new Thread(() -> {
+            try {
+                worker.accept();
+                Transaction transaction;
+                while ((transaction = worker.getNextTransaction()) != null) {
+                    users.add(transaction.getUserId());
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        new PartitionRouterService(Arrays.asList(worker.getPort()), csvPath.toString(),
+                new CheckpointDAO(PartitionRouterService.ROUTER_CHECKPOINT_SUFFIX), false).route();
+        thread.join();
+        return users;
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.service;
+
+import org.example.entity.FraudFlagger;
+import org.example.entity.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.example.service.FraudDetectionService.*;
+
+/**
+ * This class is a deliberately simple implementation of the fraud detection rules, used as the reference in differential tests.
+ * It keeps every transaction in one list and recomputes every window, median, distinct count and spending profile from scratch,
+ * with no DAO, cache, sketch or shared state, so it is easy to check against the rules as documented.
+ */
+public class ReferenceFraudDetector {
+    private static final long DISTINCT_MERCHANT_HOUR_BUCKET_SECONDS = 10 * 60;
+    private static final int DISTINCT_MERCHANT_HOUR_BUCKETS = 6;
+    private static final long DISTINCT_MERCHANT_DAY_BUCKET_SECONDS = 60 * 60;
+    private static final int DISTINCT_MERCHANT_DAY_BUCKETS = 24;
+
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final Set<String> seen = new HashSet<>();
+    private final Map<String, Double> medians = new HashMap<>();
+    private final Map<String, Integer> merchantFraudulentCounts = new HashMap<>();
+
+    /**
+     * Processes the next transaction of the stream.
+     *
+     * @param transaction The transaction.
+     * @return The flagged rules, or null if the transaction is a duplicate and is skipped.
+     */
+    public List<FraudFlagger> process(Transaction transaction) {
+        if (!seen.add(transaction.getUserId() + "," + transaction.getAmount() + "," + transaction.getTimestamp() + "," + transaction.getMerchantName())) {
+            return null;
+        }
+        transactions.add(transaction);
+        updateMedian(transaction.getUserId());
+
+        String userId = transaction.getUserId();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        int lastMinute = 0;
+        int lastHour = 0;
+        int sameMerchantLastDay = 0;
+        for (Transaction previous : transactions) {
+            if (!previous.getUserId().equals(userId) || previous.getTimestamp().isBefore(timestamp.minusDays(1))) {
+                continue;
+            }
+            if (!previous.getTimestamp().isBefore(timestamp.minusMinutes(1))) {
+                ++lastMinute;
+            }
+            if (!previous.getTimestamp().isBefore(timestamp.minusHours(1))) {
+                ++lastHour;
+            }
+            if (previous.getMerchantName().equals(transaction.getMerchantName())) {
+                ++sameMerchantLastDay;
+            }
+        }
+
+        // The profile is every earlier transaction of the user, in arrival order; the current one is the last in the list
+        List<Transaction> profile = new ArrayList<>();
+        for (Transaction previous : transactions.subList(0, transactions.size() - 1)) {
+            if (previous.getUserId().equals(userId)) {
+                profile.add(previous);
+            }
+        }
+        int amountBucket = amountBucket(transaction.getAmount());
+        int hour = timestamp.getHour();
+        boolean unusualAmount = isRare(profile, previous -> Math.abs(amountBucket(previous.getAmount()) - amountBucket) <= 2);
+        boolean unusualHour = isRare(profile, previous -> {
+            int distance = Math.abs(previous.getTimestamp().getHour() - hour);
+            return Math.min(distance, 24 - distance) <= 1;
+        });
+        boolean unusualDay = isRare(profile, previous -> previous.getTimestamp().getDayOfWeek() == timestamp.getDayOfWeek());
+        boolean unusualMerchant = isRare(profile, previous -> previous.getMerchantName().equals(transaction.getMerchantName()));
+        boolean hasProfile = profile.size() >= MIN_PROFILE_TRANSACTION_COUNT;
+
+        double median = medians.getOrDefault(userId, 0.0);
+        LocalTime time = timestamp.toLocalTime();
+        boolean highAmount = (transaction.getAmount() > median * HIGH_AMOUNT_THRESHOLD || transaction.getAmount() < median / HIGH_AMOUNT_THRESHOLD)
+                && (!hasProfile || unusualAmount);
+        boolean oddTime = hasProfile
+                ? unusualHour
+                : time.isAfter(LocalTime.of(2, 0)) && time.isBefore(LocalTime.of(6, 0));
+        int unusualFeatureCount = (unusualAmount ? 1 : 0) + (unusualHour ? 1 : 0) + (unusualDay ? 1 : 0) + (unusualMerchant ? 1 : 0);
+        boolean unusualSpendingPattern = hasProfile && unusualFeatureCount >= MIN_UNUSUAL_PROFILE_FEATURE_COUNT;
+        boolean acrossMerchant = lastMinute >= MAX_TRANSACTION_COUNT_PER_MINUTE || lastHour >= MAX_TRANSACTION_COUNT_PER_HOUR;
+        boolean sameMerchant = sameMerchantLastDay >= MAX_TRANSACTION_COUNT_PER_MERCHANT_PER_DAY;
+        boolean fraudulentMerchant = merchantFraudulentCounts.getOrDefault(transaction.getMerchantName(), 0) >= FRAUDULENT_MERCHANT_THRESHOLD;
+        boolean distinctMerchant = distinctMerchantsInLastHour(transaction) >= MAX_DISTINCT_MERCHANT_COUNT_PER_HOUR
+                || distinctMerchantsInLastDay(transaction) >= MAX_DISTINCT_MERCHANT_COUNT_PER_DAY;
+
+        List<FraudFlagger> fraudFlaggers = new ArrayList<>();
+        if (highAmount) fraudFlaggers.add(FraudFlagger.HIGH_AMOUNT_TRANSACTION);
+        if (oddTime) fraudFlaggers.add(FraudFlagger.ODD_TIME_TRANSACTION);
+        if (sameMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_TRANSACTION_WITH_SAME_MERCHANT);
+        if (acrossMerchant && !sameMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_TRANSACTION_ACROSS_MERCHANT);
+        if (fraudulentMerchant) fraudFlaggers.add(FraudFlagger.FRAUDULENT_MERCHANT);
+        if (distinctMerchant) fraudFlaggers.add(FraudFlagger.TOO_MANY_DISTINCT_MERCHANT);
+        if (unusualSpendingPattern) fraudFlaggers.add(FraudFlagger.UNUSUAL_SPENDING_PATTERN);
+
+        if (!fraudFlaggers.isEmpty()) {
+            merchantFraudulentCounts.merge(transaction.getMerchantName(), 1, Integer::sum);
+        }
+        return fraudFlaggers;
+    }
+
+    private void updateMedian(String userId) {
+        LocalDateTime latest = null;
+        for (Transaction transaction : transactions) {
+            if (latest == null || transaction.getTimestamp().isAfter(latest)) {
+                latest = transaction.getTimestamp();
+            }
+        }
+        List<Double> amounts = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getUserId().equals(userId) && !transaction.getTimestamp().isBefore(latest.minusMonths(6))) {
+                amounts.add(transaction.getAmount());
+            }
+        }
+        if (amounts.isEmpty()) {
+            return;
+        }
+        amounts.sort(null);
+        int size = amounts.size();
+        medians.put(userId, size % 2 == 0 ? (amounts.get(size / 2 - 1) + amounts.get(size / 2)) / 2.0 : amounts.get(size / 2));
+    }
+
+    /**
+     * Counts the distinct merchants of the user in the hour window ending at the last processed transaction.
+     */
+    int distinctMerchantsInLastHour(Transaction transaction) {
+        return distinctMerchants(transaction, DISTINCT_MERCHANT_HOUR_BUCKET_SECONDS, DISTINCT_MERCHANT_HOUR_BUCKETS);
+    }
+
+    /**
+     * Counts the distinct merchants of the user in the day window ending at the last processed transaction.
+     */
+    int distinctMerchantsInLastDay(Transaction transaction) {
+        return distinctMerchants(transaction, DISTINCT_MERCHANT_DAY_BUCKET_SECONDS, DISTINCT_MERCHANT_DAY_BUCKETS);
+    }
+
+    /**
+     * Counts the distinct merchants of the user in the buckets covering the window, with the same bucket boundaries as the production windows.
+     * The production windows keep one bucket per slot of a ring, so a visit is forgotten once the user has a visit in the same slot
+     * with a later bucket, whether that visit arrived before it (the late visit is dropped) or after it (its bucket is reused).
+     */
+    private int distinctMerchants(Transaction transaction, long bucketSeconds, int buckets) {
+        long currentBucket = bucket(transaction, bucketSeconds);
+        Set<String> merchants = new HashSet<>();
+        for (Transaction previous : transactions) {
+            long bucket = bucket(previous, bucketSeconds);
+            if (previous.getUserId().equals(transaction.getUserId()) && bucket <= currentBucket && bucket > currentBucket - buckets
+                    && !isForgotten(previous, bucketSeconds, buckets)) {
+                merchants.add(previous.getMerchantName());
+            }
+        }
+        return merchants.size();
+    }
+
+    private boolean isForgotten(Transaction visit, long bucketSeconds, int buckets) {
+        long bucket = bucket(visit, bucketSeconds);
+        for (Transaction other : transactions) {
+            long otherBucket = bucket(other, bucketSeconds);
+            if (other.getUserId().equals(visit.getUserId()) && otherBucket > bucket && Math.floorMod(otherBucket - bucket, (long) buckets) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long bucket(Transaction transaction, long bucketSeconds) {
+        return Math.floorDiv(transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    /**
+     * Checks if fewer than 1 in 20 of the profile transactions match, the way the spending profile defines a rare feature.
+     */
+    private static boolean isRare(List<Transaction> profile, Predicate<Transaction> matches) {
+        long count = profile.stream().filter(matches).count();
+        return count * 20 < profile.size();
+    }
+
+    /**
+     * Maps an amount to its bucket, two per doubling, as in the spending profile.
+     */
+    private static int amountBucket(double amount) {
+        return Math.min((int) Math.floor(2 * Math.log(amount + 1) / Math.log(2)), 31);
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.service;
+
+import org.example.dao.MerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.FraudFlagger;
+import org.example.entity.Merchant;
+import org.example.entity.ThresholdEvaluationResult;
+import org.example.entity.ThresholdSetting;
+import org.example.entity.Transaction;
+import org.example.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThresholdEvaluationServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private List<Transaction> transactions;
+    private List<ThresholdSetting> thresholdSettings;
+
+    /**
+     * This method sets up a small burst of transactions and a grid of threshold settings before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 14, 10, 0);
+        transactions = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            transactions.add(new Transaction("user1", 100.0, start.plusSeconds(20L * i), "Store A"));
+            transactions.add(new Transaction("user2", i == 6 ? 5000.0 : 50.0, start.plusMinutes(10L * i), "Store " + (i % 3)));
+        }
+        transactions.add(new Transaction("user3", 80.0, start.withHour(3), "Store A"));
+
+        thresholdSettings = Arrays.asList(
+                FraudDetectionService.DEFAULT_THRESHOLD_SETTING,
+                new ThresholdSetting(5, 2, 4, 5, 5, 3, 6),
+                new ThresholdSetting(20, 10, 20, 30, 30, 10, 20));
+    }
+
+    /**
+     * This test checks if a single pass over the grid gives the same flag counts as one full run per setting.
+     */
+    @Test
+    public void singlePassMatchesOneRunPerSettingTest() throws Exception {
+        UserDAO userDAO = new UserDAO();
+        MerchantDAO merchantDAO = new MerchantDAO();
+        TransactionDAO transactionDAO = new TransactionDAO();
+        ThresholdEvaluationResult result = new ThresholdEvaluationService(userDAO, merchantDAO, transactionDAO, thresholdSettings)
+                .evaluate(readerOf(transactions, userDAO, merchantDAO, transactionDAO));
+        assertEquals(transactions.size(), result.getTransactionCount());
+
+        List<List<Boolean>> flaggedPerSetting = new ArrayList<>();
+        for (int i = 0; i < thresholdSettings.size(); i++) {
+            List<Boolean> flagged = new ArrayList<>();
+            Map<FraudFlagger, Integer> flagCount = new EnumMap<>(FraudFlagger.class);
+            runOnce(thresholdSettings.get(i), flagged, flagCount);
+
+            assertEquals(flagged.stream().filter(f -> f).count(), result.getFlaggedTransactionCount()[i]);
+            assertEquals(flagCount, result.getFlagCount().get(i));
+            flaggedPerSetting.add(flagged);
+        }
+
+        for (int i = 0; i < thresholdSettings.size(); i++) {
+            for (int j = 0; j < thresholdSettings.size(); j++) {
+                int overlap = 0;
+                for (int k = 0; k < transactions.size(); k++) {
+                    if (flaggedPerSetting.get(i).get(k) && flaggedPerSetting.get(j).get(k)) {
+                        ++overlap;
+                    }
+                }
+                assertEquals(overlap, result.getOverlapCount()[i][j]);
+            }
+        }
+        assertTrue(result.getFlaggedTransactionCount()[1] > result.getFlaggedTransactionCount()[2]);
+    }
+
+    /**
+     * This test checks if grid rows with too few or too many columns, or with values that are not integers, are skipped.
+     */
+    @Test
+    public void readThresholdSettingsTest() throws IOException {
+        Path grid = tempDir.resolve("threshold_grid.csv");
+        Files.write(grid, ("High Amount Threshold,Per Minute,Per Hour,Per Merchant Per Day,Fraudulent Merchant,Distinct Per Hour,Distinct Per Day\n"
+                + "10,3,5,10,10,5,10\n"
+                + "10,3,5,10,10,5\n"
+                + "10,3,5,10,10,5,10,1\n"
+                + "10,3,5,10,10,5,\n"
+                + "10,3,five,10,10,5,10\n"
+                + "\n"
+                + "20,5,10,20,20,10,20\n").getBytes(StandardCharsets.UTF_8));
+
+        List<ThresholdSetting> settings = ThresholdEvaluationService.readThresholdSettings(grid.toString());
+        assertEquals(2, settings.size());
+        assertEquals(10, settings.get(0).getHighAmountThreshold());
+        assertEquals(20, settings.get(1).getMaxDistinctMerchantCountPerDay());
+    }
+
+    private void runOnce(ThresholdSetting thresholdSetting, List<Boolean> flagged, Map<FraudFlagger, Integer> flagCount) throws Exception {
+        UserDAO userDAO = new UserDAO();
+        MerchantDAO merchantDAO = new MerchantDAO();
+        TransactionDAO transactionDAO = new TransactionDAO();
+        ITransactionReaderService reader = readerOf(transactions, userDAO, merchantDAO, transactionDAO);
+        UserService userService = new UserService(userDAO, transactionDAO);
+        FraudDetectionService fraudDetectionService = new FraudDetectionService(userDAO, merchantDAO, transactionDAO, thresholdSetting);
+
+        Transaction transaction;
+        while ((transaction = reader.getNextTransaction()) != null) {
+            userService.updateMedianTransactionAmount(transaction.getUserId());
+            List<FraudFlagger> fraudFlaggers = fraudDetectionService.detectFraud(transaction);
+            if (!fraudFlaggers.isEmpty()) {
+                merchantDAO.setFraudulentCount(transaction.getMerchantName());
+            }
+            for (FraudFlagger flagger : fraudFlaggers) {
+                flagCount.merge(flagger, 1, Integer::sum);
+            }
+            flagged.add(!fraudFlaggers.isEmpty());
+        }
+    }
+
+    private static ITransactionReaderService readerOf(List<Transaction> transactions, UserDAO userDAO, MerchantDAO merchantDAO, TransactionDAO transactionDAO) {
+        Iterator<Transaction> iterator = transactions.iterator();
+        return () -> {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            Transaction transaction = iterator.next();
+            merchantDAO.addMerchant(new Merchant(transaction.getMerchantName()));
+            if (userDAO.getUser(transaction.getUserId()) == null) {
+                userDAO.addUser(new User(transaction.getUserId()));
+            }
+            userDAO.getUser(transaction.getUserId()).addMerchantVisit(transaction.getMerchantName(), transaction.getTimestamp());
+            transactionDAO.addTransaction(transaction);
+            return transaction;
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.dao.CheckpointDAO;
+import org.example.dao.MerchantDAO;
+import org.example.dao.TransactionDAO;
+import org.example.dao.UserDAO;
+import org.example.entity.ReaderCheckpoint;
+import org.example.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionReaderServiceTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * This test checks if a new reader resumes after the last checkpoint instead of re-reading the whole file.
+     */
+    @Test
+    public void resumeFromCheckpointTest() throws IOException {
+        Path csv = tempDir.resolve("transactions.csv");
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "user2,75.20,2024-03-14 12:45:00,Store B\n");
+
+        TransactionReaderService first = newReader(csv, false);
+        assertEquals("user1", first.getNextTransaction().getUserId());
+        assertEquals("user2", first.getNextTransaction().getUserId());
+        assertNull(first.getNextTransaction());
+
+        ReaderCheckpoint checkpoint = new CheckpointDAO().getCheckpoint(csv.toString());
+        assertEquals(3, checkpoint.getLineNumber());
+        assertEquals(Files.size(csv), checkpoint.getOffset());
+
+        write(csv, "user3,150.00,2024-03-14 15:20:00,Store C\n");
+        TransactionReaderService second = newReader(csv, false);
+        assertEquals("user3", second.getNextTransaction().getUserId());
+        assertNull(second.getNextTransaction());
+    }
+
+    /**
+     * This test checks if a feed replaced at the same path, shorter or longer than the checkpointed offset, is read from the start.
+     */
+    @Test
+    public void replacedFileTest() throws IOException {
+        Path csv = tempDir.resolve("transactions.csv");
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "user2,75.20,2024-03-14 12:45:00,Store B\n");
+        TransactionReaderService first = newReader(csv, false);
+        while (first.getNextTransaction() != null) {
+            // Read to the end of the file
+        }
+
+        Files.delete(csv);
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user3,150.00,2024-03-15 15:20:00,Store C\n");
+        TransactionReaderService shorter = newReader(csv, false);
+        assertEquals("user3", shorter.getNextTransaction().getUserId());
+        assertNull(shorter.getNextTransaction());
+
+        Files.delete(csv);
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user4,10.00,2024-03-16 09:00:00,Store D\n"
+                + "user12,20.00,2024-03-16 09:05:00,Store E\n"
+                + "user5,30.00,2024-03-16 09:10:00,Store F\n");
+        TransactionReaderService longer = newReader(csv, false);
+        assertEquals("user4", longer.getNextTransaction().getUserId());
+        assertEquals("user12", longer.getNextTransaction().getUserId());
+        assertEquals("user5", longer.getNextTransaction().getUserId());
+        assertNull(longer.getNextTransaction());
+    }
+
+    /**
+     * This test checks if the last row of a file is read even when it has no trailing newline.
+     */
+    @Test
+    public void lastLineWithoutNewlineTest() throws IOException {
+        Path csv = tempDir.resolve("transactions.csv");
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "user2,75.20,2024-03-14 12:45:00,Store B");
+
+        TransactionReaderService reader = newReader(csv, false);
+        assertEquals("user1", reader.getNextTransaction().getUserId());
+        assertEquals("user2", reader.getNextTransaction().getUserId());
+        assertNull(reader.getNextTransaction());
+        assertEquals(Files.size(csv), new CheckpointDAO().getCheckpoint(csv.toString()).getOffset());
+    }
+
+    /**
+     * This test checks if a following reader waits for lines appended to the file, and only returns a line once it is complete.
+     */
+    @Test
+    public void followTest() throws Exception {
+        Path csv = tempDir.resolve("transactions.csv");
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\nuser1,100.50,2024-03-14 10:30:00,Store A\nuser2,75.20");
+
+        TransactionReaderService reader = newReader(csv, true);
+        assertEquals("user1", reader.getNextTransaction().getUserId());
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(2 * TransactionReaderService.FOLLOW_POLL_INTERVAL_MILLIS);
+                write(csv, ",2024-03-14 12:45:00,Store B\n");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        Transaction transaction = reader.getNextTransaction();
+        writer.join();
+        assertEquals("user2", transaction.getUserId());
+        assertEquals(75.20, transaction.getAmount());
+        assertEquals("Store B", transaction.getMerchantName());
+
+        reader.stop();
+        assertNull(reader.getNextTransaction());
+        assertEquals(3, new CheckpointDAO().getCheckpoint(csv.toString()).getLineNumber());
+    }
+
+    /**
+     * This test checks if the lines read between two checkpoints are recorded as one JFR ingestion batch event.
+     */
+    @Test
+    public void ingestionBatchEventTest() throws IOException {
+        Path csv = tempDir.resolve("transactions.csv");
+        write(csv, "User ID,Amount,Timestamp,Merchant Name\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "user1,100.50,2024-03-14 10:30:00,Store A\n"
+                + "user2,75.20,2024-03-14 12:45:00,Store B\n");
+
+        Path recordingFile = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.IngestionBatch");
+            recording.start();
+            TransactionReaderService reader = newReader(csv, false);
+            while (reader.getNextTransaction() != null) {
+                // Read to the end of the file
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).getLong("firstLine"));
+        assertEquals(4, events.get(0).getLong("lastLine"));
+        assertEquals(2, events.get(0).getInt("transactionCount"));
+        assertEquals(1, events.get(0).getInt("duplicateCount"));
+        assertTrue(events.get(0).getDuration().isZero());
+        assertTrue(events.get(0).getDuration("readTime").toNanos() > 0);
+        assertTrue(events.get(0).getDuration("ingestTime").toNanos() > 0);
+    }
+
+    private static TransactionReaderService newReader(Path csv, boolean follow) throws IOException {
+        return new TransactionReaderService(new UserDAO(), new MerchantDAO(), new TransactionDAO(), csv.toString(), new CheckpointDAO(), follow);
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
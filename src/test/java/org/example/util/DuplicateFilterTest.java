@@ -0,0 +1,77 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFilterTest {
+
+    /**
+     * This test checks if values are reported as new the first time and as duplicates afterwards, within and across partitions.
+     */
+    @Test
+    public void duplicateTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(1000, 0.001, 30, 2);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(duplicateFilter.add("user" + i + ",100.0,2024-03-14T10:30,Store A", 1));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(duplicateFilter.add("user" + i + ",100.0,2024-03-14T10:30,Store A", 1));
+        }
+        assertTrue(duplicateFilter.add("user0,100.0,2024-03-14T10:30,Store A", 2));
+        assertFalse(duplicateFilter.add("user0,100.0,2024-03-14T10:30,Store A", 2));
+    }
+
+    /**
+     * This test checks if recent partitions are exact even with a tiny Bloom filter size,
+     * and if older partitions still detect duplicates with their Bloom filter alone.
+     */
+    @Test
+    public void exactAndBloomPartitionTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(10, 0.5, 30, 1);
+        int newValues = 0;
+        for (int i = 0; i < 200; i++) {
+            if (duplicateFilter.add("value" + i, 1)) {
+                ++newValues;
+            }
+        }
+        assertEquals(200, newValues);
+
+        assertTrue(duplicateFilter.add("value0", 2));
+        assertFalse(duplicateFilter.add("value0", 1));
+        assertFalse(duplicateFilter.add("value199", 1));
+    }
+
+    /**
+     * This test checks if the Bloom filter of an old partition grows when it receives far more late values than it was sized for,
+     * instead of reporting most of them as duplicates.
+     */
+    @Test
+    public void latePartitionGrowthTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(100, 0.01, 30, 1);
+        assertTrue(duplicateFilter.add("value", 2));
+        int newValues = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (duplicateFilter.add("late" + i, 1)) {
+                ++newValues;
+            }
+        }
+        assertTrue(newValues > 98_000, newValues + " of 100000 late values reported as new");
+        assertFalse(duplicateFilter.add("late0", 1));
+        assertFalse(duplicateFilter.add("late99999", 1));
+    }
+
+    /**
+     * This test checks if partitions beyond the retention are dropped and values older than every retained partition are let through.
+     */
+    @Test
+    public void retentionTest() {
+        DuplicateFilter duplicateFilter = new DuplicateFilter(100, 0.001, 2, 2);
+        assertTrue(duplicateFilter.add("value", 1));
+        assertTrue(duplicateFilter.add("value", 2));
+        assertTrue(duplicateFilter.add("value", 3));
+        assertFalse(duplicateFilter.add("value", 2));
+        assertTrue(duplicateFilter.add("value", 1));
+        assertTrue(duplicateFilter.add("value", 1));
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingLeaderboardTest {
+
+    /**
+     * This test checks if keys are ranked by alert count and by alert rate, and if old events leave the window.
+     */
+    @Test
+    public void rankingAndExpiryTest() {
+        SlidingLeaderboard leaderboard = new SlidingLeaderboard(60, 60, 3);
+        for (int i = 0; i < 10; i++) {
+            leaderboard.record("user1", i < 4, i);
+            leaderboard.record("user2", i < 2, i);
+        }
+        leaderboard.record("user3", true, 10);
+        leaderboard.record("user3", true, 11);
+        leaderboard.record("user4", true, 12);
+        leaderboard.record("user4", true, 13);
+        leaderboard.record("user4", false, 14);
+
+        assertEquals(Arrays.asList("user1: 4/10", "user2: 2/10", "user3: 2/2"), leaderboard.topByAlertCount(3));
+        assertEquals(Arrays.asList("user4: 2/3", "user1: 4/10", "user2: 2/10"), leaderboard.topByAlertRate(5));
+
+        leaderboard.record("user2", true, 3600 + 5);
+        assertEquals(Collections.singletonList("user2: 1/1"), leaderboard.topByAlertCount(5));
+        assertEquals(Collections.emptyList(), leaderboard.topByAlertRate(5));
+
+        leaderboard.record("user1", true, 0);
+        assertEquals(Collections.singletonList("user2: 1/1"), leaderboard.topByAlertCount(5));
+    }
+}